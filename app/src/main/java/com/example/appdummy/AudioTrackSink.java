@@ -0,0 +1,122 @@
+package com.example.appdummy;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTimestamp;
+import android.media.AudioTrack;
+import android.os.Build;
+
+import java.io.IOException;
+
+/**
+ * AudioSink vers la carte son : une AudioTrack MODE_STREAM en PCM float mono.
+ * write() est bloquant : il cadence l'appelant sur l'horloge de la sortie.
+ *
+ * Tampon adaptatif : la piste est allouée large (MAX_BUFFER_MS), mais on n'en
+ * utilise que la part fixée par un BufferTuner. On démarre à deux bursts du
+ * périphérique ; les underruns de la piste (getUnderrunCount) font grossir le
+ * tampon, une longue période stable le fait redescendre.
+ */
+public class AudioTrackSink implements AudioSink {
+
+    private static final int MAX_BUFFER_MS = 200;
+
+    private final AudioTrack track;
+    private final AudioTimestamp timestamp = new AudioTimestamp();
+    private final BufferTuner tuner;
+    private final int capacityFrames;
+    private volatile int bufferFrames;
+
+    private AudioTrackSink(AudioTrack track, BufferTuner tuner) {
+        this.track = track;
+        this.tuner = tuner;
+        this.capacityFrames = track.getBufferCapacityInFrames();
+        this.bufferFrames = track.setBufferSizeInFrames(tuner.getSizeFrames());
+        if (bufferFrames <= 0) bufferFrames = track.getBufferSizeInFrames();
+    }
+
+    /**
+     * Ouvre la sortie.
+     * @param burstFrames frames par burst du périphérique
+     *                    (AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER), 0 si inconnu
+     * @return null si l'AudioTrack n'a pas pu être initialisée
+     */
+    public static AudioTrackSink open(int sampleRate, int blockFrames, int burstFrames) {
+        int minBytes = AudioTrack.getMinBufferSize(
+                sampleRate, AudioFormat.CHANNEL_OUT_MONO, AudioFormat.ENCODING_PCM_FLOAT);
+        int minFrames = Math.max(blockFrames, minBytes / 4);
+        int maxFrames = Math.max(minFrames, MAX_BUFFER_MS * sampleRate / 1000);
+        if (burstFrames <= 0) burstFrames = Math.max(blockFrames, minFrames / 2);
+
+        AudioTrack.Builder builder = new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_MEDIA)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                        .build())
+                .setAudioFormat(new AudioFormat.Builder()
+                        .setSampleRate(sampleRate)
+                        .setEncoding(AudioFormat.ENCODING_PCM_FLOAT)
+                        .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+                        .build())
+                .setBufferSizeInBytes(maxFrames * 4)
+                .setTransferMode(AudioTrack.MODE_STREAM);
+        if (Build.VERSION.SDK_INT >= 26) {
+            builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+        }
+        AudioTrack track;
+        try {
+            track = builder.build();
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+        if (track.getState() != AudioTrack.STATE_INITIALIZED) {
+            track.release();
+            return null;
+        }
+
+        // au moins deux bursts, et de quoi contenir un bloc entier
+        int capacity = track.getBufferCapacityInFrames();
+        int start = Math.min(capacity, Math.max(2 * burstFrames, blockFrames));
+        return new AudioTrackSink(track, new BufferTuner(burstFrames, start, capacity, sampleRate));
+    }
+
+    /** Taille du tampon utilisée, en frames (part de la latence de sortie). */
+    public int getBufferFrames() { return bufferFrames; }
+
+    /** Taille maximale que le tampon peut atteindre, en frames. */
+    public int getCapacityFrames() { return capacityFrames; }
+
+    public BufferTuner getTuner() { return tuner; }
+
+    /**
+     * Relit l'horodatage de présentation de la piste (frame jouée, System.nanoTime) ;
+     * false tant que la sortie n'en fournit pas (début de lecture).
+     */
+    public boolean updateTimestamp() {
+        return track.getTimestamp(timestamp);
+    }
+
+    public long getTimestampFrame() { return timestamp.framePosition; }
+
+    public long getTimestampNanos() { return timestamp.nanoTime; }
+
+    public void play() {
+        track.play();
+    }
+
+    @Override public void write(float[] buf, int offset, int frames) throws IOException {
+        int written = track.write(buf, offset, frames, AudioTrack.WRITE_BLOCKING);
+        if (written < 0) throw new IOException("AudioTrack.write : " + written);
+
+        int want = tuner.update(track.getUnderrunCount(), written);
+        if (want != bufferFrames) {
+            int applied = track.setBufferSizeInFrames(want);
+            if (applied > 0) bufferFrames = applied;
+        }
+    }
+
+    public void release() {
+        try { track.stop(); } catch (IllegalStateException ignored) {}
+        track.release();
+    }
+}
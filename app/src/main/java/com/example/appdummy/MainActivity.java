@@ -4,27 +4,42 @@ import android.app.AlertDialog;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.content.res.AssetFileDescriptor;
+import android.database.Cursor;
 import android.graphics.Color;
-import android.media.SoundPool;
+import android.media.AudioManager;
 import android.net.Uri;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.provider.DocumentsContract;
+import android.provider.OpenableColumns;
 import android.view.MotionEvent;
 import android.view.View;
 import android.widget.Button;
 import android.widget.LinearLayout;
+import android.widget.ScrollView;
 import android.widget.SeekBar;
 import android.widget.TextView;
 import android.widget.CheckBox;
+import android.widget.CompoundButton;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
 
 public class MainActivity extends AppCompatActivity {
     private boolean isPlaying = true; // état initial : le séquenceur tourne
@@ -33,73 +48,69 @@ public class MainActivity extends AppCompatActivity {
     private static final int MIN_STEPS = 2;
     private static final int MAX_STEPS = 32;
 
-    private static final int INITIAL_STEPS         = 16;
-    private static final int INITIAL_PULSES_ORANGE = 5;
-    private static final int INITIAL_PULSES_GREEN  = 0;
-    private static final int INITIAL_PULSES_PINK   = 0;
+    private static final int INITIAL_STEPS = 16;
+
+    // pistes par défaut (bleu, orange, vert, rose) : voix + pulses initiaux
+    private static final int[] DEFAULT_VOICES = {
+            AudioGraph.VOICE_KICK, AudioGraph.VOICE_SNARE,
+            AudioGraph.VOICE_HAT_OPEN, AudioGraph.VOICE_HAT_CLOSED
+    };
+    private static final int[] DEFAULT_PULSES = { INITIAL_STEPS, 5, 0, 0 };
 
     private static final double DEFAULT_BPM = 60.0;
     private static final double MIN_BPM = 40.0;
     private static final double MAX_BPM = 260.0;
 
-    private static final int REQ_WAV_KICK       = 1;
-    private static final int REQ_WAV_SNARE      = 2;
-    private static final int REQ_WAV_HAT_OPEN   = 3;
-    private static final int REQ_WAV_HAT_CLOSED = 4;
+    // nombre de steps pour atteindre un nouveau tempo (0 : dès le step suivant) ;
+    // le tap tempo n'en a pas : il s'applique d'un coup, calé sur le dernier tap
+    private static final int TEMPO_RAMP_STEPS = 4;
+
+    // longueur d'un export (tours de l'anneau bleu)
+    private static final int BOUNCE_BARS = 4;
+
+    // requestCode du sélecteur de fichier = REQ_WAV_BASE + piste
+    private static final int REQ_WAV_BASE = 1;
 
     private static final String PREFS_NAME = "euclidian_beats_prefs";
 
-    private enum PlayMode { SYNTH, SAMPLE }
+    // clés des versions à 4 anneaux fixes, relues quand les clés par piste manquent
+    private static final String[] LEGACY_PULSES   = { null, "pulsesOrange", "pulsesGreen", "pulsesPink" };
+    private static final String[] LEGACY_ROTATION = { null, "rotationOrange", "rotationGreen", "rotationPink" };
+    private static final String[] LEGACY_MODE     = { "modeKick", "modeSnare", "modeHatOpen", "modeHatClosed" };
+    private static final String[] LEGACY_URI      = { "uriKick", "uriSnare", "uriHatOpen", "uriHatClosed" };
 
     private RhythmCircleView circleView;
     private SoundEngine soundEngine;
+    private Sequencer sequencer;
+
+    // pistes : steps, pulses, rotation, voix, gain, mute
+    private final TrackModel tracks = new TrackModel();
 
-    // SoundPool pour les samples WAV
-    private SoundPool soundPool;
-    private int sampleKickId      = 0;
-    private int sampleSnareId     = 0;
-    private int sampleHatOpenId   = 0;
-    private int sampleHatClosedId = 0;
-
-    // URIs persistés des samples
-    private Uri uriKick;
-    private Uri uriSnare;
-    private Uri uriHatOpen;
-    private Uri uriHatClosed;
-
-    // mode de lecture par voix
-    private PlayMode modeKick      = PlayMode.SYNTH;
-    private PlayMode modeSnare     = PlayMode.SYNTH;
-    private PlayMode modeHatOpen   = PlayMode.SYNTH;
-    private PlayMode modeHatClosed = PlayMode.SYNTH;
-
-    private int steps        = INITIAL_STEPS;
-    private int pulsesOrange = INITIAL_PULSES_ORANGE;
-    private int pulsesGreen  = INITIAL_PULSES_GREEN;
-    private int pulsesPink   = INITIAL_PULSES_PINK;
-
-    private boolean[] patternOrange;
-    private boolean[] patternGreen;
-    private boolean[] patternPink;
-
-    private boolean isBlueMuted = false;
-    private TextView stepsLabel;
+    // sample WAV choisi par piste (le mode sample/synthèse est porté par le Sequencer)
+    private final Uri[] sampleUris = new Uri[TrackModel.MAX_TRACKS];
+
+    // décodage des WAV hors UI ; bit t : passer la piste t en mode sample une fois prête
+    private static final long SAMPLE_BUDGET_BYTES = 16L * 1024 * 1024; // 16 bits : ~3 min à 44,1 kHz
+    private SampleStore sampleStore;
+    private int enableOnReadyMask = 0;
+
+    // samples déjà décodés, gardés sur disque d'un lancement à l'autre
+    private static final long SAMPLE_CACHE_BYTES = 64L * 1024 * 1024;
+    private SampleCache sampleCache;
 
     private double secondsPerStep;
     private double currentBpm = DEFAULT_BPM;
 
-    private final Handler handler = new Handler(Looper.getMainLooper());
-    private int currentStep = 0;
-
     private final List<Long> tapTimes = new ArrayList<>();
     private static final int MAX_TAPS_MEMORY = 8;
     private static final long MAX_INTERVAL_MS = 2000;
 
-    // petites “leds” de debug
-    private View flashKick;
-    private View flashSnare;
-    private View flashHatOpen;
-    private View flashHatClosed;
+    // rangées de contrôles et petites “leds” de debug, une par piste
+    private LinearLayout trackRows;
+    private LinearLayout flashRow;
+    private final TextView[] countLabels = new TextView[TrackModel.MAX_TRACKS];
+    private final CheckBox[] muteChecks = new CheckBox[TrackModel.MAX_TRACKS];
+    private final View[] flashes = new View[TrackModel.MAX_TRACKS];
 
     // sliders pour pouvoir les manipuler lors du restore/save
     private SeekBar drumSeek;
@@ -107,32 +118,27 @@ public class MainActivity extends AppCompatActivity {
     private TextView drumLabel;
     private TextView noteLabel;
 
-    // glitch : niveau 0..1, plus un SeekBar et un label
-    private double glitchLevel = 0.0;
+    // glitch : SeekBar et label (le niveau 0..1 est porté par le Sequencer)
     private SeekBar glitchSeek;
     private TextView glitchLabel;
 
-    private final Runnable tickRunnable = new Runnable() {
-        @Override public void run() {
-            currentStep = (currentStep + 1) % steps;
-
-            boolean kick      = circleView.shouldPlayKick(currentStep);
-        if (isBlueMuted) kick = false;
-            boolean snare     = circleView.shouldPlaySnare(currentStep);
-            boolean hatOpen   = circleView.shouldPlayHatOpen(currentStep);
-            boolean hatClosed = circleView.shouldPlayHatClosed(currentStep);
+    // overlay de debug affiché (thread UI)
+    private boolean debugTiming = false;
 
-            circleView.setCurrentStep(currentStep);
+    // tête de lecture animée au vsync d'après l'horloge audio (le thread audio ne poste rien)
+    private PlayheadAnimator playheadAnimator;
+    private int shownFlashMask = 0; // leds allumées (bit t = piste t)
 
-            if (kick)      playKickVoice();
-            if (snare)     playSnareVoice();
-            if (hatOpen)   playHatOpenVoice();
-            if (hatClosed) playHatClosedVoice();
-
-            updateFlashRow(kick, snare, hatOpen, hatClosed);
+    /** Thread UI, à chaque frame : aiguille continue ; leds et métriques quand des steps sont entendus. */
+    private final PlayheadAnimator.Listener playheadListener = new PlayheadAnimator.Listener() {
+        @Override public void onPlayhead(long step, float fraction) {
+            circleView.setPlayhead(step, fraction);
+        }
 
-            long delayMs = (long) Math.round(secondsPerStep * 1000.0);
-            handler.postDelayed(this, delayMs);
+        @Override public void onStepsHeard(long lastStep, int firedMask) {
+            updateFlashRow(firedMask);
+            sampleStore.maintain(); // recharge les samples évincés que le séquenceur réclame
+            if (debugTiming) circleView.setOutputMetrics(soundEngine.getMetrics());
         }
     };
 
@@ -155,214 +161,28 @@ public class MainActivity extends AppCompatActivity {
                 0,
                 1f));
 
-        // Barre bleue (steps)
-        LinearLayout blueBar = new LinearLayout(this);
-        blueBar.setOrientation(LinearLayout.HORIZONTAL);
-        blueBar.setLayoutParams(new LinearLayout.LayoutParams(
-                LinearLayout.LayoutParams.MATCH_PARENT,
-                LinearLayout.LayoutParams.WRAP_CONTENT));
-
-        Button minusBlue = new Button(this);
-        minusBlue.setAllCaps(false);
-        minusBlue.setTextColor(Color.WHITE);
-        minusBlue.setBackgroundColor(0xFF2196F3);
-        minusBlue.setText("- steps");
-
-        Button plusBlue = new Button(this);
-        plusBlue.setAllCaps(false);
-        plusBlue.setTextColor(Color.WHITE);
-        plusBlue.setBackgroundColor(0xFF2196F3);
-        plusBlue.setText("+ steps");
-
-        Button blueSound = new Button(this);
-        stepsLabel = new TextView(this);
-        stepsLabel.setTextColor(Color.WHITE);
-        stepsLabel.setTextSize(16f);
-        stepsLabel.setText("Steps : " + steps);
-
-        CheckBox blueMuteCheck = new CheckBox(this);
-        blueMuteCheck.setText("Mute");
-        blueMuteCheck.setTextColor(Color.WHITE);
-        blueMuteCheck.setChecked(false);
-        blueMuteCheck.setOnClickListener(new View.OnClickListener() {
-            @Override public void onClick(View v) {
-                isBlueMuted = blueMuteCheck.isChecked();
-            }
-        });
-        blueSound.setAllCaps(false);
-        blueSound.setTextColor(Color.WHITE);
-        blueSound.setBackgroundColor(0xFF0D47A1);
-        blueSound.setText("Sound");
-
-        LinearLayout.LayoutParams lpWeightBlue =
-                new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.WRAP_CONTENT, 1f);
-        minusBlue.setLayoutParams(lpWeightBlue);
-        plusBlue.setLayoutParams(lpWeightBlue);
-        blueSound.setLayoutParams(lpWeightBlue);
-        stepsLabel.setLayoutParams(lpWeightBlue);
-        blueMuteCheck.setLayoutParams(lpWeightBlue);
-
-        blueBar.addView(minusBlue);
-        blueBar.addView(plusBlue);
-        blueBar.addView(blueSound);
-        blueBar.addView(stepsLabel);
-        blueBar.addView(blueMuteCheck);
-
-        // Rangées orange / vert / rose : [Random] [ - ] [ + ] [Sound]
-
-        // Orange
-        LinearLayout rowOrange = new LinearLayout(this);
-        rowOrange.setOrientation(LinearLayout.HORIZONTAL);
-        rowOrange.setLayoutParams(new LinearLayout.LayoutParams(
-                LinearLayout.LayoutParams.MATCH_PARENT,
-                LinearLayout.LayoutParams.WRAP_CONTENT));
+        // Pistes par défaut
+        for (int t = 0; t < DEFAULT_VOICES.length; t++) {
+            tracks.add(INITIAL_STEPS, DEFAULT_PULSES[t], DEFAULT_VOICES[t]);
+        }
 
-        Button orangeRandom = new Button(this);
-        orangeRandom.setAllCaps(false);
-        orangeRandom.setText(String.valueOf(pulsesOrange));
-        orangeRandom.setBackgroundColor(0xFFFF9800);
-
-        Button orangeMinus = new Button(this);
-        orangeMinus.setAllCaps(false);
-        orangeMinus.setTextColor(Color.BLACK);
-        orangeMinus.setBackgroundColor(0xFFFFCC80);
-        orangeMinus.setText("-");
-
-        Button orangePlus = new Button(this);
-        orangePlus.setAllCaps(false);
-        orangePlus.setTextColor(Color.BLACK);
-        orangePlus.setBackgroundColor(0xFFFFCC80);
-        orangePlus.setText("+");
-
-        Button orangeSound = new Button(this);
-        orangeSound.setAllCaps(false);
-        orangeSound.setTextColor(Color.BLACK);
-        orangeSound.setBackgroundColor(0xFFBF360C);
-        orangeSound.setText("Sound");
+        // Une rangée de boutons par piste (défilante quand il y en a beaucoup)
+        trackRows = new LinearLayout(this);
+        trackRows.setOrientation(LinearLayout.VERTICAL);
 
-        LinearLayout.LayoutParams lpWeightColor =
-                new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.WRAP_CONTENT, 1f);
-        orangeRandom.setLayoutParams(lpWeightColor);
-        orangeMinus.setLayoutParams(lpWeightColor);
-        orangePlus.setLayoutParams(lpWeightColor);
-        orangeSound.setLayoutParams(lpWeightColor);
-
-        rowOrange.addView(orangeRandom);
-        rowOrange.addView(orangeMinus);
-        rowOrange.addView(orangePlus);
-        rowOrange.addView(orangeSound);
-
-        // Vert
-        LinearLayout rowGreen = new LinearLayout(this);
-        rowGreen.setOrientation(LinearLayout.HORIZONTAL);
-        rowGreen.setLayoutParams(new LinearLayout.LayoutParams(
+        ScrollView trackScroll = new ScrollView(this);
+        trackScroll.setLayoutParams(new LinearLayout.LayoutParams(
                 LinearLayout.LayoutParams.MATCH_PARENT,
                 LinearLayout.LayoutParams.WRAP_CONTENT));
+        trackScroll.addView(trackRows);
 
-        Button greenRandom = new Button(this);
-        greenRandom.setAllCaps(false);
-        greenRandom.setText(String.valueOf(pulsesGreen));
-        greenRandom.setBackgroundColor(0xFF4CAF50);
-
-        Button greenMinus = new Button(this);
-        greenMinus.setAllCaps(false);
-        greenMinus.setTextColor(Color.BLACK);
-        greenMinus.setBackgroundColor(0xFFA5D6A7);
-        greenMinus.setText("-");
-
-        Button greenPlus = new Button(this);
-        greenPlus.setAllCaps(false);
-        greenPlus.setTextColor(Color.BLACK);
-        greenPlus.setBackgroundColor(0xFFA5D6A7);
-        greenPlus.setText("+");
-
-        Button greenSound = new Button(this);
-        greenSound.setAllCaps(false);
-        greenSound.setTextColor(Color.BLACK);
-        greenSound.setBackgroundColor(0xFF1B5E20);
-        greenSound.setText("Sound");
-
-        greenRandom.setLayoutParams(lpWeightColor);
-        greenMinus.setLayoutParams(lpWeightColor);
-        greenPlus.setLayoutParams(lpWeightColor);
-        greenSound.setLayoutParams(lpWeightColor);
-
-        rowGreen.addView(greenRandom);
-        rowGreen.addView(greenMinus);
-        rowGreen.addView(greenPlus);
-        rowGreen.addView(greenSound);
-
-        // Rose
-        LinearLayout rowPink = new LinearLayout(this);
-        rowPink.setOrientation(LinearLayout.HORIZONTAL);
-        rowPink.setLayoutParams(new LinearLayout.LayoutParams(
-                LinearLayout.LayoutParams.MATCH_PARENT,
-                LinearLayout.LayoutParams.WRAP_CONTENT));
-
-        Button pinkRandom = new Button(this);
-        pinkRandom.setAllCaps(false);
-        pinkRandom.setText(String.valueOf(pulsesPink));
-        pinkRandom.setBackgroundColor(0xFFE91E63);
-
-        Button pinkMinus = new Button(this);
-        pinkMinus.setAllCaps(false);
-        pinkMinus.setTextColor(Color.BLACK);
-        pinkMinus.setBackgroundColor(0xFFF8BBD0);
-        pinkMinus.setText("-");
-
-        Button pinkPlus = new Button(this);
-        pinkPlus.setAllCaps(false);
-        pinkPlus.setTextColor(Color.BLACK);
-        pinkPlus.setBackgroundColor(0xFFF8BBD0);
-        pinkPlus.setText("+");
-
-        Button pinkSound = new Button(this);
-        pinkSound.setAllCaps(false);
-        pinkSound.setTextColor(Color.BLACK);
-        pinkSound.setBackgroundColor(0xFF880E4F);
-        pinkSound.setText("Sound");
-
-        pinkRandom.setLayoutParams(lpWeightColor);
-        pinkMinus.setLayoutParams(lpWeightColor);
-        pinkPlus.setLayoutParams(lpWeightColor);
-        pinkSound.setLayoutParams(lpWeightColor);
-
-        rowPink.addView(pinkRandom);
-        rowPink.addView(pinkMinus);
-        rowPink.addView(pinkPlus);
-        rowPink.addView(pinkSound);
-
-        // --- Barre de clignotants (Kick / Snare / Hat open / Hat closed) ---
-        LinearLayout flashRow = new LinearLayout(this);
+        // --- Barre de clignotants (une led par piste) ---
+        flashRow = new LinearLayout(this);
         flashRow.setOrientation(LinearLayout.HORIZONTAL);
         flashRow.setLayoutParams(new LinearLayout.LayoutParams(
                 LinearLayout.LayoutParams.MATCH_PARENT,
                 20));
 
-        LinearLayout.LayoutParams lpFlash =
-                new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.MATCH_PARENT, 1f);
-
-        flashKick = new View(this);
-        flashKick.setLayoutParams(lpFlash);
-        flashKick.setBackgroundColor(0xFF004A6F); // bleu sombre
-
-        flashSnare = new View(this);
-        flashSnare.setLayoutParams(lpFlash);
-        flashSnare.setBackgroundColor(0xFF7A5A00); // ambre sombre
-
-        flashHatOpen = new View(this);
-        flashHatOpen.setLayoutParams(lpFlash);
-        flashHatOpen.setBackgroundColor(0xFF1B5E20); // vert sombre
-
-        flashHatClosed = new View(this);
-        flashHatClosed.setLayoutParams(lpFlash);
-        flashHatClosed.setBackgroundColor(0xFF880E4F); // rose sombre
-
-        flashRow.addView(flashKick);
-        flashRow.addView(flashSnare);
-        flashRow.addView(flashHatOpen);
-        flashRow.addView(flashHatClosed);
-
         // Widgets de volume
         drumLabel = new TextView(this);
         drumLabel.setTextColor(Color.WHITE);
@@ -392,6 +212,26 @@ public class MainActivity extends AppCompatActivity {
         glitchSeek.setMax(100);
         glitchSeek.setProgress(0);
 
+        // Debug timing : overlay sur la vue + export CSV
+        LinearLayout debugRow = newRow();
+        CheckBox debugCheck = new CheckBox(this);
+        debugCheck.setTextColor(Color.WHITE);
+        debugCheck.setText("Debug timing");
+        Button csvButton = new Button(this);
+        csvButton.setAllCaps(false);
+        csvButton.setTextColor(Color.WHITE);
+        csvButton.setBackgroundColor(0xFF424242);
+        csvButton.setText("Export CSV");
+        debugRow.addView(debugCheck, new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.WRAP_CONTENT, 1f));
+        debugRow.addView(csvButton, new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.WRAP_CONTENT, 1f));
+
+        // Bouton BOUNCE (export WAV hors ligne)
+        Button bounceButton = new Button(this);
+        bounceButton.setAllCaps(false);
+        bounceButton.setTextColor(Color.WHITE);
+        bounceButton.setBackgroundColor(0xFF616161);
+        bounceButton.setText("Bounce");
+
         // Bouton SAVE
         Button saveButton = new Button(this);
         saveButton.setAllCaps(false);
@@ -401,10 +241,7 @@ public class MainActivity extends AppCompatActivity {
 
         // Assemblage du layout
         root.addView(circleView);
-        root.addView(blueBar);
-        root.addView(rowOrange);
-        root.addView(rowGreen);
-        root.addView(rowPink);
+        root.addView(trackScroll);
         root.addView(flashRow);
         root.addView(drumLabel);
         root.addView(drumSeek);
@@ -412,12 +249,13 @@ public class MainActivity extends AppCompatActivity {
         root.addView(noteSeek);
         root.addView(glitchLabel);
         root.addView(glitchSeek);
-        // --- Bandeau Play/Stop + Save ---
+        root.addView(debugRow);
+        // --- Bandeau Play/Stop + pistes + Save ---
         LinearLayout bottomBar = new LinearLayout(this);
         bottomBar.setOrientation(LinearLayout.HORIZONTAL);
         bottomBar.setLayoutParams(new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, LinearLayout.LayoutParams.WRAP_CONTENT));
         bottomBar.setPadding(10,10,10,10);
-        
+
         Button playStopButton = new Button(this);
         playStopButton.setAllCaps(false);
         playStopButton.setTextColor(Color.WHITE);
@@ -427,41 +265,88 @@ public class MainActivity extends AppCompatActivity {
             @Override public void onClick(View v) {
                 if (isPlaying) {
                     isPlaying = false;
-                    handler.removeCallbacks(tickRunnable);
+                    stopLoop();
                     playStopButton.setText("Play");
                 } else {
                     isPlaying = true;
-                    handler.post(tickRunnable);
+                    startLoop();
                     playStopButton.setText("Stop");
                 }
             }
         });
-        
+
+        Button removeTrackButton = new Button(this);
+        removeTrackButton.setAllCaps(false);
+        removeTrackButton.setTextColor(Color.WHITE);
+        removeTrackButton.setBackgroundColor(0xFF424242);
+        removeTrackButton.setText("- track");
+        removeTrackButton.setOnClickListener(new View.OnClickListener() {
+            @Override public void onClick(View v) {
+                if (tracks.count <= 1) return;
+                tracks.removeLast();
+                int t = tracks.count;
+                sequencer.setSampleMode(t, false);
+                sampleUris[t] = null;
+                sampleStore.clear(t);
+                rebuildTrackRows();
+                recomputePatternsAndUpdateView();
+            }
+        });
+
+        Button addTrackButton = new Button(this);
+        addTrackButton.setAllCaps(false);
+        addTrackButton.setTextColor(Color.WHITE);
+        addTrackButton.setBackgroundColor(0xFF424242);
+        addTrackButton.setText("+ track");
+        addTrackButton.setOnClickListener(new View.OnClickListener() {
+            @Override public void onClick(View v) {
+                int t = tracks.add(tracks.steps[0], 0, tracks.count % AudioGraph.VOICE_COUNT);
+                if (t < 0) return;
+                rebuildTrackRows();
+                recomputePatternsAndUpdateView();
+            }
+        });
+
         bottomBar.addView(playStopButton, new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.WRAP_CONTENT, 1f));
+        bottomBar.addView(removeTrackButton, new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.WRAP_CONTENT, 1f));
+        bottomBar.addView(addTrackButton, new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.WRAP_CONTENT, 1f));
+        bottomBar.addView(bounceButton, new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.WRAP_CONTENT, 1f));
         bottomBar.addView(saveButton, new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.WRAP_CONTENT, 1f));
-        
+
         root.addView(bottomBar);
 
 
         setContentView(root);
 
+        // Son + gains initiaux (le moteur porte aussi l'horloge du séquenceur)
+        soundEngine = new SoundEngine(44_100, deviceFramesPerBurst());
+        soundEngine.setDrumGain(1.0);
+        soundEngine.setNoteGain(0.5);
+        playheadAnimator = new PlayheadAnimator(
+                soundEngine.getPlayhead(), playheadListener);
+
+        // Séquenceur : appelé par l'horloge sur le thread de planification, il lit
+        // les pistes dans le snapshot de la vue et planifie les voix
+        sequencer = new Sequencer(soundEngine.getGraph(), circleView, new Random());
+        soundEngine.setStepListener(sequencer);
+
+        sampleStore = new SampleStore(soundEngine.getGraph(), new Executor() {
+            @Override public void execute(Runnable r) { runOnUiThread(r); }
+        }, SAMPLE_BUDGET_BYTES, true);
+        sampleStore.setListener(sampleStateListener);
+        // au-delà de 3 s, seuls les 300 premiers ms restent en mémoire, la suite est lue en flux
+        int rate = soundEngine.getSampleRate();
+        sampleStore.setStreaming(new File(getCacheDir(), "streams"), rate * 3, rate * 3 / 10);
+        sampleCache = new SampleCache(new File(getCacheDir(), "samples"), SAMPLE_CACHE_BYTES);
+
         // Tempo initial
         applyBpm(DEFAULT_BPM);
 
-        // Motifs initiaux
-        clampPulsesToSteps();
+        // Rangées + motifs initiaux
+        tracks.clampAll();
+        rebuildTrackRows();
         recomputePatternsAndUpdateView();
 
-        // Son + gains initiaux
-        soundEngine = new SoundEngine(44_100);
-        soundEngine.setDrumGain(1.0);
-        soundEngine.setNoteGain(0.5);
-
-        // SoundPool pour les samples
-        soundPool = new SoundPool.Builder()
-                .setMaxStreams(4)
-                .build();
-
         // Sliders de volume
         drumSeek.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
             @Override public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
@@ -489,7 +374,7 @@ public class MainActivity extends AppCompatActivity {
 
         glitchSeek.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
             @Override public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
-                glitchLevel = progress / 100.0;
+                if (sequencer != null) sequencer.setGlitchLevel(progress / 100.0);
                 glitchLabel.setText("Glitch level : " + progress + " %");
             }
             @Override public void onStartTrackingTouch(SeekBar seekBar) {}
@@ -503,6 +388,29 @@ public class MainActivity extends AppCompatActivity {
             }
         });
 
+        // Debug timing
+        debugCheck.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override public void onCheckedChanged(CompoundButton b, boolean on) {
+                if (on) soundEngine.resetScheduleStats();
+                debugTiming = on;
+                circleView.setOutputMetrics(on ? soundEngine.getMetrics() : null);
+                circleView.setTimingOverlay(on ? soundEngine.getTimingStats() : null);
+                circleView.setSampleStats(on ? sampleCache : null, on ? sampleStore : null);
+            }
+        });
+        csvButton.setOnClickListener(new View.OnClickListener() {
+            @Override public void onClick(View v) {
+                exportTimingCsv();
+            }
+        });
+
+        // Bouton BOUNCE
+        bounceButton.setOnClickListener(new View.OnClickListener() {
+            @Override public void onClick(View v) {
+                bounce();
+            }
+        });
+
         // Taps : carré central = tempo, ailleurs = toggle
         circleView.setOnTouchListener(new View.OnTouchListener() {
             @Override public boolean onTouch(View v, MotionEvent e) {
@@ -538,205 +446,281 @@ public class MainActivity extends AppCompatActivity {
             }
         });
 
-        // Labels init (texte des boutons Random)
-        updateButtonLabels(orangeRandom, greenRandom, pinkRandom);
+        // ➜ Restaurer l'état s'il y en a un
+        restoreState();
+    }
+
+    // --- Rangées de pistes ---
+
+    /** Reconstruit les rangées de boutons et les leds d'après le modèle. */
+    private void rebuildTrackRows() {
+        trackRows.removeAllViews();
+        flashRow.removeAllViews();
+
+        LinearLayout.LayoutParams lpFlash =
+                new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.MATCH_PARENT, 1f);
+
+        for (int t = 0; t < TrackModel.MAX_TRACKS; t++) {
+            countLabels[t] = null;
+            muteChecks[t] = null;
+            flashes[t] = null;
+        }
+        for (int t = 0; t < tracks.count; t++) {
+            trackRows.addView((t == 0) ? makeStepsRow() : makeTrackRow(t));
+
+            View flash = new View(this);
+            flash.setLayoutParams(lpFlash);
+            flash.setBackgroundColor(TrackPalette.flashOff(t));
+            flashes[t] = flash;
+            flashRow.addView(flash);
+        }
+        shownFlashMask = 0;
+        updateButtonLabels();
+    }
+
+    /** Piste 0 (bleue) : [- steps] [+ steps] [Sound] [Steps : n] [Mute] */
+    private LinearLayout makeStepsRow() {
+        LinearLayout blueBar = newRow();
+
+        Button minusBlue = new Button(this);
+        minusBlue.setAllCaps(false);
+        minusBlue.setTextColor(Color.WHITE);
+        minusBlue.setBackgroundColor(TrackPalette.main(0));
+        minusBlue.setText("- steps");
+
+        Button plusBlue = new Button(this);
+        plusBlue.setAllCaps(false);
+        plusBlue.setTextColor(Color.WHITE);
+        plusBlue.setBackgroundColor(TrackPalette.main(0));
+        plusBlue.setText("+ steps");
+
+        Button blueSound = newSoundButton(0, Color.WHITE);
+
+        TextView stepsLabel = new TextView(this);
+        stepsLabel.setTextColor(Color.WHITE);
+        stepsLabel.setTextSize(16f);
+
+        CheckBox blueMuteCheck = newMuteCheck(0);
+
+        LinearLayout.LayoutParams lpWeightBlue =
+                new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.WRAP_CONTENT, 1f);
+        minusBlue.setLayoutParams(lpWeightBlue);
+        plusBlue.setLayoutParams(lpWeightBlue);
+        blueSound.setLayoutParams(lpWeightBlue);
+        stepsLabel.setLayoutParams(lpWeightBlue);
+        blueMuteCheck.setLayoutParams(lpWeightBlue);
+
+        blueBar.addView(minusBlue);
+        blueBar.addView(plusBlue);
+        blueBar.addView(blueSound);
+        blueBar.addView(stepsLabel);
+        blueBar.addView(blueMuteCheck);
 
-        // Steps bleus --
+        // Steps --
         minusBlue.setOnClickListener(new View.OnClickListener() {
             @Override public void onClick(View v) {
-                if (steps > MIN_STEPS) {
-                    steps--;
-                    clampPulsesToSteps();
-                    recomputePatternsAndUpdateView();
-                    circleView.reactivateAll();
-                    updateButtonLabels(orangeRandom, greenRandom, pinkRandom);
-                }
+                if (tracks.steps[0] > MIN_STEPS) setBlueSteps(tracks.steps[0] - 1);
             }
         });
 
-        // Steps bleus ++
+        // Steps ++
         plusBlue.setOnClickListener(new View.OnClickListener() {
             @Override public void onClick(View v) {
-                if (steps < MAX_STEPS) {
-                    steps++;
-                    clampPulsesToSteps();
-                    recomputePatternsAndUpdateView();
-                    circleView.reactivateAll();
-                    updateButtonLabels(orangeRandom, greenRandom, pinkRandom);
-                }
+                if (tracks.steps[0] < MAX_STEPS) setBlueSteps(tracks.steps[0] + 1);
             }
         });
 
-        // Bouton "Sound" bleu
-        blueSound.setOnClickListener(new View.OnClickListener() {
-            @Override public void onClick(View v) {
-                showSoundSourceDialog("(blue)", new Runnable() {
-                    @Override public void run() { modeKick = PlayMode.SYNTH; }
-                }, REQ_WAV_KICK);
-            }
-        });
+        countLabels[0] = stepsLabel;
+        return blueBar;
+    }
 
-        // Orange : random / - / +
-        orangeRandom.setOnClickListener(new View.OnClickListener() {
-            @Override public void onClick(View v) {
-                pulsesOrange = (int) Math.floor(Math.random() * (steps + 1));
-                clampPulsesToSteps();
-                recomputePatternsAndUpdateView();
-                circleView.reactivateAll();
-                updateButtonLabels(orangeRandom, greenRandom, pinkRandom);
-            }
-        });
+    /**
+     * Autres pistes : [Random] [ - ] [ + ] [Sound] [Mute]
+     * -/+ règlent les pulses ; en appui long, la longueur propre de la piste.
+     */
+    private LinearLayout makeTrackRow(final int t) {
+        LinearLayout row = newRow();
 
-        orangeMinus.setOnClickListener(new View.OnClickListener() {
-            @Override public void onClick(View v) {
-                if (pulsesOrange > 0) {
-                    pulsesOrange--;
-                    clampPulsesToSteps();
-                    recomputePatternsAndUpdateView();
-                    circleView.reactivateAll();
-                    updateButtonLabels(orangeRandom, greenRandom, pinkRandom);
-                }
-            }
-        });
+        Button random = new Button(this);
+        random.setAllCaps(false);
+        random.setBackgroundColor(TrackPalette.main(t));
 
-        orangePlus.setOnClickListener(new View.OnClickListener() {
-            @Override public void onClick(View v) {
-                if (pulsesOrange < steps) {
-                    pulsesOrange++;
-                    clampPulsesToSteps();
-                    recomputePatternsAndUpdateView();
-                    circleView.reactivateAll();
-                    updateButtonLabels(orangeRandom, greenRandom, pinkRandom);
-                }
-            }
-        });
+        Button minus = new Button(this);
+        minus.setAllCaps(false);
+        minus.setTextColor(Color.BLACK);
+        minus.setBackgroundColor(TrackPalette.light(t));
+        minus.setText("-");
+
+        Button plus = new Button(this);
+        plus.setAllCaps(false);
+        plus.setTextColor(Color.BLACK);
+        plus.setBackgroundColor(TrackPalette.light(t));
+        plus.setText("+");
 
-        orangeSound.setOnClickListener(new View.OnClickListener() {
+        Button sound = newSoundButton(t, Color.BLACK);
+        CheckBox mute = newMuteCheck(t);
+
+        LinearLayout.LayoutParams lpWeightColor =
+                new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.WRAP_CONTENT, 1f);
+        random.setLayoutParams(lpWeightColor);
+        minus.setLayoutParams(lpWeightColor);
+        plus.setLayoutParams(lpWeightColor);
+        sound.setLayoutParams(lpWeightColor);
+        mute.setLayoutParams(lpWeightColor);
+
+        row.addView(random);
+        row.addView(minus);
+        row.addView(plus);
+        row.addView(sound);
+        row.addView(mute);
+
+        random.setOnClickListener(new View.OnClickListener() {
             @Override public void onClick(View v) {
-                showSoundSourceDialog("(orange)", new Runnable() {
-                    @Override public void run() { modeSnare = PlayMode.SYNTH; }
-                }, REQ_WAV_SNARE);
+                tracks.pulses[t] = (int) Math.floor(Math.random() * (tracks.steps[t] + 1));
+                onTrackEdited(t);
             }
         });
 
-        // Vert : random / - / +
-        greenRandom.setOnClickListener(new View.OnClickListener() {
-            @Override public void onClick(View v) {
-                pulsesGreen = (int) Math.floor(Math.random() * (steps + 1));
-                clampPulsesToSteps();
+        // appui long sur le compteur : rotation du motif d'un step
+        random.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override public boolean onLongClick(View v) {
+                tracks.rotation[t] = (tracks.rotation[t] + 1) % tracks.steps[t];
                 recomputePatternsAndUpdateView();
-                circleView.reactivateAll();
-                updateButtonLabels(orangeRandom, greenRandom, pinkRandom);
+                return true;
             }
         });
 
-        greenMinus.setOnClickListener(new View.OnClickListener() {
+        minus.setOnClickListener(new View.OnClickListener() {
             @Override public void onClick(View v) {
-                if (pulsesGreen > 0) {
-                    pulsesGreen--;
-                    clampPulsesToSteps();
-                    recomputePatternsAndUpdateView();
-                    circleView.reactivateAll();
-                    updateButtonLabels(orangeRandom, greenRandom, pinkRandom);
+                if (tracks.pulses[t] > 0) {
+                    tracks.pulses[t]--;
+                    onTrackEdited(t);
                 }
             }
         });
 
-        greenPlus.setOnClickListener(new View.OnClickListener() {
+        plus.setOnClickListener(new View.OnClickListener() {
             @Override public void onClick(View v) {
-                if (pulsesGreen < steps) {
-                    pulsesGreen++;
-                    clampPulsesToSteps();
-                    recomputePatternsAndUpdateView();
-                    circleView.reactivateAll();
-                    updateButtonLabels(orangeRandom, greenRandom, pinkRandom);
+                if (tracks.pulses[t] < tracks.steps[t]) {
+                    tracks.pulses[t]++;
+                    onTrackEdited(t);
                 }
             }
         });
 
-        greenSound.setOnClickListener(new View.OnClickListener() {
-            @Override public void onClick(View v) {
-                showSoundSourceDialog("(green)", new Runnable() {
-                    @Override public void run() { modeHatOpen = PlayMode.SYNTH; }
-                }, REQ_WAV_HAT_OPEN);
-            }
-        });
-
-        // Rose : random / - / +
-        pinkRandom.setOnClickListener(new View.OnClickListener() {
-            @Override public void onClick(View v) {
-                pulsesPink = (int) Math.floor(Math.random() * (steps + 1));
-                clampPulsesToSteps();
-                recomputePatternsAndUpdateView();
-                circleView.reactivateAll();
-                updateButtonLabels(orangeRandom, greenRandom, pinkRandom);
+        minus.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override public boolean onLongClick(View v) {
+                if (tracks.steps[t] > MIN_STEPS) {
+                    tracks.steps[t]--;
+                    onTrackEdited(t);
+                }
+                return true;
             }
         });
 
-        pinkMinus.setOnClickListener(new View.OnClickListener() {
-            @Override public void onClick(View v) {
-                if (pulsesPink > 0) {
-                    pulsesPink--;
-                    clampPulsesToSteps();
-                    recomputePatternsAndUpdateView();
-                    circleView.reactivateAll();
-                    updateButtonLabels(orangeRandom, greenRandom, pinkRandom);
+        plus.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override public boolean onLongClick(View v) {
+                if (tracks.steps[t] < MAX_STEPS) {
+                    tracks.steps[t]++;
+                    onTrackEdited(t);
                 }
+                return true;
             }
         });
 
-        pinkPlus.setOnClickListener(new View.OnClickListener() {
+        countLabels[t] = random;
+        return row;
+    }
+
+    private LinearLayout newRow() {
+        LinearLayout row = new LinearLayout(this);
+        row.setOrientation(LinearLayout.HORIZONTAL);
+        row.setLayoutParams(new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT,
+                LinearLayout.LayoutParams.WRAP_CONTENT));
+        return row;
+    }
+
+    private Button newSoundButton(final int t, int textColor) {
+        Button sound = new Button(this);
+        sound.setAllCaps(false);
+        sound.setTextColor(textColor);
+        sound.setBackgroundColor(TrackPalette.dark(t));
+        sound.setText("Sound");
+        sound.setOnClickListener(new View.OnClickListener() {
             @Override public void onClick(View v) {
-                if (pulsesPink < steps) {
-                    pulsesPink++;
-                    clampPulsesToSteps();
-                    recomputePatternsAndUpdateView();
-                    circleView.reactivateAll();
-                    updateButtonLabels(orangeRandom, greenRandom, pinkRandom);
-                }
+                showSoundSourceDialog("(" + TrackPalette.name(t) + ")", t);
             }
         });
+        return sound;
+    }
 
-        pinkSound.setOnClickListener(new View.OnClickListener() {
+    private CheckBox newMuteCheck(final int t) {
+        final CheckBox mute = new CheckBox(this);
+        mute.setText("Mute");
+        mute.setTextColor(Color.WHITE);
+        mute.setChecked(tracks.mute[t]);
+        mute.setOnClickListener(new View.OnClickListener() {
             @Override public void onClick(View v) {
-                showSoundSourceDialog("(pink)", new Runnable() {
-                    @Override public void run() { modeHatClosed = PlayMode.SYNTH; }
-                }, REQ_WAV_HAT_CLOSED);
+                tracks.mute[t] = mute.isChecked();
+                circleView.updateTrackParams(tracks);
             }
         });
+        muteChecks[t] = mute;
+        return mute;
+    }
 
-        // ➜ Restaurer l'état s'il y en a un
-        restoreState(orangeRandom, greenRandom, pinkRandom);
+    /**
+     * Nouvelle longueur de la piste bleue ; les pistes qui avaient la même
+     * longueur la suivent, celles réglées à part (polymétrie) gardent la leur.
+     */
+    private void setBlueSteps(int steps) {
+        int old = tracks.steps[0];
+        for (int t = 0; t < tracks.count; t++) {
+            if (tracks.steps[t] == old) tracks.steps[t] = steps;
+        }
+        tracks.clampAll();
+        recomputePatternsAndUpdateView();
+        updateButtonLabels();
+    }
+
+    private void onTrackEdited(int t) {
+        tracks.clamp(t);
+        recomputePatternsAndUpdateView();
+        updateButtonLabels();
     }
 
     @Override protected void onResume() {
         super.onResume();
-        startLoop();
+        if (isPlaying) startLoop();
+        if (playheadAnimator != null) playheadAnimator.start();
     }
 
     @Override protected void onPause() {
         super.onPause();
-        // on laisse la boucle tourner pour jouer écran éteint
+        // on laisse la boucle tourner pour jouer écran éteint ; seule l'animation s'arrête
+        if (playheadAnimator != null) playheadAnimator.stop();
     }
 
     @Override protected void onDestroy() {
         super.onDestroy();
         stopLoop();
+        if (sampleStore != null) sampleStore.release();
         if (soundEngine != null) soundEngine.release();
-        if (soundPool != null) {
-            soundPool.release();
-            soundPool = null;
-        }
     }
 
+    /** Démarre la boucle depuis le step 0 ; sans effet si elle tourne déjà. */
     private void startLoop() {
-        handler.removeCallbacks(tickRunnable);
-        currentStep = -1;
-        handler.postDelayed(tickRunnable, (long) Math.round(secondsPerStep * 1000.0));
+        if (soundEngine == null) return;
+        StepClock clock = soundEngine.getClock();
+        if (clock.isRunning()) return;
+        clock.setSecondsPerStep(secondsPerStep);
+        clock.start();
     }
 
     private void stopLoop() {
-        handler.removeCallbacks(tickRunnable);
+        if (soundEngine == null) return;
+        soundEngine.getClock().stop();
     }
 
     // TAP TEMPO
@@ -765,70 +749,68 @@ public class MainActivity extends AppCompatActivity {
         double bpm = 60000.0 / (sum / count);
         if (bpm < MIN_BPM || bpm > MAX_BPM) return;
 
-        applyBpm(bpm);
+        setBpm(bpm);
+
+        // nouveau tempo tout de suite, les steps suivants tombent sur sa grille à
+        // partir du dernier tap (getEventTime et System.nanoTime partagent l'horloge monotone)
+        if (soundEngine != null) {
+            soundEngine.getClock().alignTo(tapTimeMs * 1_000_000L, secondsPerStep);
+        }
     }
 
+    /** Nouveau tempo sans arrêter la boucle : la phase et le numéro de step continuent. */
     private void applyBpm(double bpm) {
+        setBpm(bpm);
+        if (soundEngine != null) {
+            soundEngine.getClock().rampSecondsPerStep(secondsPerStep, TEMPO_RAMP_STEPS);
+        }
+    }
+
+    private void setBpm(double bpm) {
         currentBpm = bpm;
         secondsPerStep = 60.0 / currentBpm;
         circleView.setBpm(currentBpm);
-        stopLoop();
-        startLoop();
-    }
-
-    private void clampPulsesToSteps() {
-        if (pulsesOrange > steps) pulsesOrange = steps;
-        if (pulsesGreen  > steps) pulsesGreen  = steps;
-        if (pulsesPink   > steps) pulsesPink   = steps;
-        if (pulsesOrange < 0) pulsesOrange = 0;
-        if (pulsesGreen  < 0) pulsesGreen  = 0;
-        if (pulsesPink   < 0) pulsesPink   = 0;
     }
 
+    /** Nouveaux motifs pour toutes les pistes : les points redeviennent actifs. */
     private void recomputePatternsAndUpdateView() {
-        patternOrange = makeEuclideanPattern(steps, pulsesOrange);
-        patternGreen  = makeEuclideanPattern(steps, pulsesGreen);
-        patternPink   = makeEuclideanPattern(steps, pulsesPink);
-        circleView.updatePatterns(patternOrange, patternGreen, patternPink, steps, secondsPerStep);
+        circleView.updatePatterns(tracks, secondsPerStep);
     }
 
-    private void updateButtonLabels(Button orangeRandom, Button greenRandom, Button pinkRandom) {
-        if (stepsLabel != null) stepsLabel.setText("Steps : " + steps);
-
-        orangeRandom.setText(String.valueOf(pulsesOrange));
-        greenRandom.setText(String.valueOf(pulsesGreen));
-        pinkRandom.setText(String.valueOf(pulsesPink));
-    }
-
-    private static boolean[] makeEuclideanPattern(int steps, int pulses) {
-        boolean[] pattern = new boolean[steps];
-        if (pulses <= 0) return pattern;
-        if (pulses > steps) pulses = steps;
-        for (int i = 0; i < pulses; i++) {
-            int idx = (int) Math.floor(i * (steps / (double) pulses));
-            if (idx < 0) idx = 0;
-            if (idx >= steps) idx = steps - 1;
-            pattern[idx] = true;
+    private void updateButtonLabels() {
+        for (int t = 0; t < tracks.count; t++) {
+            TextView label = countLabels[t];
+            if (label != null) {
+                if (t == 0) {
+                    label.setText("Steps : " + tracks.steps[0]);
+                } else if (tracks.steps[t] == tracks.steps[0]) {
+                    label.setText(String.valueOf(tracks.pulses[t]));
+                } else {
+                    label.setText(tracks.pulses[t] + " / " + tracks.steps[t]);
+                }
+            }
+            if (muteChecks[t] != null) muteChecks[t].setChecked(tracks.mute[t]);
         }
-        return pattern;
     }
 
-    // Met à jour la barre de leds pour ce step
-    private void updateFlashRow(boolean kick, boolean snare,
-                                boolean hatOpen, boolean hatClosed) {
-        if (flashKick != null)
-            flashKick.setBackgroundColor(kick ? 0xFF00BCD4 : 0xFF004A6F);
-        if (flashSnare != null)
-            flashSnare.setBackgroundColor(snare ? 0xFFFFC107 : 0xFF7A5A00);
-        if (flashHatOpen != null)
-            flashHatOpen.setBackgroundColor(hatOpen ? 0xFF4CAF50 : 0xFF1B5E20);
-        if (flashHatClosed != null)
-            flashHatClosed.setBackgroundColor(hatClosed ? 0xFFE91E63 : 0xFF880E4F);
+    // Met à jour la barre de leds pour ce step (bit t = piste t)
+    /** Ne touche qu'aux leds qui changent d'état. */
+    private void updateFlashRow(int fired) {
+        int changed = fired ^ shownFlashMask;
+        shownFlashMask = fired;
+        for (int t = 0; t < tracks.count; t++) {
+            if (((changed >>> t) & 1) == 0) continue;
+            View flash = flashes[t];
+            if (flash == null) continue;
+            boolean on = ((fired >>> t) & 1) != 0;
+            flash.setBackgroundColor(on ? TrackPalette.flashOn(t) : TrackPalette.flashOff(t));
+        }
     }
 
     // --- Gestion des sources sonores (Synth / WAV) ---
 
-    private void showSoundSourceDialog(String title, final Runnable useSynthAction, final int requestCode) {
+    private void showSoundSourceDialog(String title, final int track) {
+        final int requestCode = REQ_WAV_BASE + track;
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle(title);
         String[] items = new String[] {
@@ -840,7 +822,9 @@ public class MainActivity extends AppCompatActivity {
             @Override public void onClick(DialogInterface dialog, int which) {
                 if (which == 0) {
                     // Synthèse
-                    useSynthAction.run();
+                    sequencer.setSampleMode(track, false);
+                    enableOnReadyMask &= ~(1 << track); // chargement en cours : ne pas rebasculer
+                    sampleStore.setPinned(track, false); // le sample peut être évincé
                 } else if (which == 1) {
                     // Sélection d'un fichier WAV
                     Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
@@ -855,9 +839,9 @@ public class MainActivity extends AppCompatActivity {
                 } else if (which == 2) {
                     MicSampleRecorder rec = new MicSampleRecorder(MainActivity.this, "mic_rec",
                         new MicSampleRecorder.OnSampleReadyListener() {
-                            @Override public void onSampleReady(java.io.File wav) {
+                            @Override public void onSampleReady(File wav) {
                                 android.net.Uri u = android.net.Uri.fromFile(wav);
-                                reloadSampleFromUri(u, requestCode);
+                                reloadSampleFromUri(u, track, true);
                             }
                         }
                     );
@@ -873,6 +857,9 @@ public class MainActivity extends AppCompatActivity {
         super.onActivityResult(requestCode, resultCode, data);
         if (resultCode != RESULT_OK || data == null) return;
 
+        int track = requestCode - REQ_WAV_BASE;
+        if (track < 0 || track >= tracks.count) return;
+
         Uri uri = data.getData();
         if (uri == null) return;
 
@@ -883,121 +870,231 @@ public class MainActivity extends AppCompatActivity {
             getContentResolver().takePersistableUriPermission(uri, takeFlags);
         } catch (SecurityException ignored) {}
 
-        // Mémoriser l'URI
-        switch (requestCode) {
-            case REQ_WAV_KICK:
-                uriKick = uri;
-                break;
-            case REQ_WAV_SNARE:
-                uriSnare = uri;
-                break;
-            case REQ_WAV_HAT_OPEN:
-                uriHatOpen = uri;
-                break;
-            case REQ_WAV_HAT_CLOSED:
-                uriHatClosed = uri;
-                break;
-            default:
-                break;
-        }
+        // Mémoriser l'URI, puis charger le sample
+        sampleUris[track] = uri;
+        reloadSampleFromUri(uri, track, true);
+    }
 
-        // Charger le sample
-        reloadSampleFromUri(uri, requestCode);
+    /**
+     * Décode le WAV en arrière-plan puis l'installe dans le slot de la piste, au
+     * début de mesure qui suit ; d'ici là la piste garde son son actuel (synthèse
+     * ou ancien sample). Les slots se chargent en parallèle.
+     * @param enableSample passer la piste en mode sample une fois le sample prêt
+     */
+    private void reloadSampleFromUri(final Uri uri, int track, boolean enableSample) {
+        if (uri == null || sampleStore == null) return;
+        int bit = 1 << track;
+        enableOnReadyMask = enableSample ? (enableOnReadyMask | bit) : (enableOnReadyMask & ~bit);
+        sampleStore.load(track, new SampleStore.Decoder() {
+            @Override public SampleData.Source decode(int sampleRate) throws IOException {
+                return decodeWav(uri, sampleRate);
+            }
+        });
     }
 
-    private void reloadSampleFromUri(Uri uri, int requestCode) {
-        if (uri == null || soundPool == null) return;
-        try {
-            AssetFileDescriptor afd = getContentResolver().openAssetFileDescriptor(uri, "r");
-            if (afd == null) return;
-            int soundId = soundPool.load(afd, 1);
-            afd.close();
-
-            switch (requestCode) {
-                case REQ_WAV_KICK:
-                    sampleKickId = soundId;
-                    modeKick = PlayMode.SAMPLE;
-                    break;
-                case REQ_WAV_SNARE:
-                    sampleSnareId = soundId;
-                    modeSnare = PlayMode.SAMPLE;
-                    break;
-                case REQ_WAV_HAT_OPEN:
-                    sampleHatOpenId = soundId;
-                    modeHatOpen = PlayMode.SAMPLE;
-                    break;
-                case REQ_WAV_HAT_CLOSED:
-                    sampleHatClosedId = soundId;
-                    modeHatClosed = PlayMode.SAMPLE;
-                    break;
-                default:
-                    break;
+    /**
+     * Thread de chargement : depuis le cache disque si le fichier n'a pas changé,
+     * sinon décodage, mis en cache puis relu depuis le cache (un seul décodage).
+     */
+    private SampleData.Source decodeWav(Uri uri, int sampleRate) throws IOException {
+        String key = sampleCacheKey(uri);
+        if (key != null) {
+            SampleData.Source cached = sampleCache.get(key, sampleRate);
+            if (cached != null) return cached;
+        }
+        SampleData.Source pcm = readWav(uri, sampleRate);
+        if (key != null) {
+            try {
+                SampleData.Source cached = sampleCache.put(key, sampleRate, pcm);
+                if (cached != null) return cached;
+            } catch (IOException ignored) {
+                // cache plein ou disque en lecture seule : le sample reste utilisable
             }
-        } catch (IOException e) {
-            // en cas d'échec, on laisse le mode synth
         }
+        return pcm;
     }
 
-    // --- Helpers de lecture en fonction du mode + glitch ---
-
-    private void playKickVoice() {
-        if (modeKick == PlayMode.SAMPLE && soundPool != null && sampleKickId != 0) {
-            float[] vAndP = makeGlitchedVolumeAndPitch();
-            soundPool.play(sampleKickId, vAndP[0], vAndP[0], 1, 0, vAndP[1]);
+    /**
+     * Clé de cache : URI + taille + date de modification ; null si le fournisseur
+     * ne donne ni l'une ni l'autre (on ne saurait pas voir que le fichier a changé).
+     */
+    private String sampleCacheKey(Uri uri) {
+        long size = -1;
+        long modified = -1;
+        if ("file".equals(uri.getScheme()) && uri.getPath() != null) {
+            File f = new File(uri.getPath());
+            size = f.length();
+            modified = f.lastModified();
         } else {
-            soundEngine.playKick();
+            try (Cursor c = getContentResolver().query(uri, new String[] {
+                    OpenableColumns.SIZE, DocumentsContract.Document.COLUMN_LAST_MODIFIED
+            }, null, null, null)) {
+                if (c != null && c.moveToFirst()) {
+                    if (!c.isNull(0)) size = c.getLong(0);
+                    if (!c.isNull(1)) modified = c.getLong(1);
+                }
+            } catch (RuntimeException e) {
+                // colonne inconnue de ce fournisseur, permission perdue…
+            }
         }
+        if (size <= 0 || modified <= 0) return null;
+        return uri + "|" + size + "|" + modified;
     }
 
-    private void playSnareVoice() {
-        if (modeSnare == PlayMode.SAMPLE && soundPool != null && sampleSnareId != 0) {
-            float[] vAndP = makeGlitchedVolumeAndPitch();
-            soundPool.play(sampleSnareId, vAndP[0], vAndP[0], 1, 0, vAndP[1]);
-        } else {
-            soundEngine.playSnare();
+    /**
+     * Fichier projeté en mémoire, décodé à la lecture. Un flux non projetable
+     * (pipe) est d'abord recopié dans un fichier temporaire : rien n'est gardé
+     * entier sur le tas.
+     */
+    private SampleData.Source readWav(Uri uri, int sampleRate) throws IOException {
+        try {
+            ParcelFileDescriptor pfd = getContentResolver().openFileDescriptor(uri, "r");
+            if (pfd != null) {
+                ByteBuffer mapped;
+                try (FileInputStream in = new FileInputStream(pfd.getFileDescriptor())) {
+                    mapped = mapOrNull(in.getChannel());
+                } finally {
+                    pfd.close();
+                }
+                // une erreur de format remonte telle quelle, sans seconde lecture
+                if (mapped != null) return WavReader.open(mapped, sampleRate);
+            }
+            InputStream in = getContentResolver().openInputStream(uri);
+            if (in == null) throw new IOException("introuvable : " + uri);
+            File spool = File.createTempFile("wav", ".tmp", getCacheDir());
+            try {
+                try (OutputStream out = new FileOutputStream(spool)) {
+                    byte[] buf = new byte[64 * 1024];
+                    int n;
+                    while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+                } finally {
+                    in.close();
+                }
+                try (FileInputStream f = new FileInputStream(spool)) {
+                    return WavReader.open(f.getChannel(), sampleRate); // la projection survit à la suppression
+                }
+            } finally {
+                spool.delete();
+            }
+        } catch (SecurityException e) {
+            throw new IOException(e);
         }
     }
 
-    private void playHatOpenVoice() {
-        if (modeHatOpen == PlayMode.SAMPLE && soundPool != null && sampleHatOpenId != 0) {
-            float[] vAndP = makeGlitchedVolumeAndPitch();
-            soundPool.play(sampleHatOpenId, vAndP[0], vAndP[0], 1, 0, vAndP[1]);
-        } else {
-            soundEngine.playHatOpen();
+    /** Projection du fichier entier ; null si le descripteur ne se projette pas (pipe). */
+    private static ByteBuffer mapOrNull(FileChannel ch) throws IOException {
+        long size;
+        try {
+            size = ch.size();
+        } catch (IOException e) {
+            return null;
+        }
+        if (size <= 0) return null; // pipe : taille inconnue
+        if (size > Integer.MAX_VALUE) throw new IOException("WAV trop gros");
+        try {
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (IOException e) {
+            return null;
         }
     }
 
-    private void playHatClosedVoice() {
-        if (modeHatClosed == PlayMode.SAMPLE && soundPool != null && sampleHatClosedId != 0) {
-            float[] vAndP = makeGlitchedVolumeAndPitch();
-            soundPool.play(sampleHatClosedId, vAndP[0], vAndP[0], 1, 0, vAndP[1]);
-        } else {
-            soundEngine.playHatClosed();
+    /** Thread UI : fin de chargement d'un slot. */
+    private final SampleStore.Listener sampleStateListener = new SampleStore.Listener() {
+        @Override public void onSampleState(int slot, int state, Throwable error) {
+            int bit = 1 << slot;
+            if (state == SampleStore.READY) {
+                if ((enableOnReadyMask & bit) != 0) sequencer.setSampleMode(slot, true);
+                // piste jouée en sample : jamais évincée
+                sampleStore.setPinned(slot, sequencer.isSampleMode(slot));
+            } else if (state == SampleStore.FAILED) {
+                // en cas d'échec, on laisse le mode synth
+                Toast.makeText(MainActivity.this, "Sample illisible : " + error.getMessage(),
+                        Toast.LENGTH_SHORT).show();
+            }
+            if (state != SampleStore.LOADING) enableOnReadyMask &= ~bit;
         }
-    }
+    };
 
-    /**
-     * Calcule un (volume, pitch) légèrement aléatoire en fonction de glitchLevel.
-     * glitchLevel=0  => (1.0, 1.0)
-     * glitchLevel=1  => volume ~ [0.6, 1.4], pitch ~ [0.9, 1.1]
-     */
-    private float[] makeGlitchedVolumeAndPitch() {
-        double g = glitchLevel;
-        if (g < 0.0) g = 0.0;
-        if (g > 1.0) g = 1.0;
+    // --- Mesures de timing ---
 
-        double volJitter   = 4.0 * g;  // ±40% max
-        double pitchJitter = 1.5 * g / 4;  // ±10% max
+    /** Frames par burst de la sortie (taille de départ du tampon), 0 si inconnu. */
+    private int deviceFramesPerBurst() {
+        AudioManager am = (AudioManager) getSystemService(AUDIO_SERVICE);
+        String v = (am != null) ? am.getProperty(AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER) : null;
+        if (v == null) return 0;
+        try {
+            return Integer.parseInt(v);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
 
-        double volFactor = 1.0 + (Math.random() * 2.0 - 1.0) * volJitter;
-        double pitch     = 1.0 + (Math.random() * 2.0 - 1.0) * pitchJitter;
+    /** Écrit les mesures de TimingStats dans timing_<date>.csv (dossier de l'app). */
+    private void exportTimingCsv() {
+        if (soundEngine == null) return;
+        File dir = getExternalFilesDir(null);
+        if (dir == null) dir = getFilesDir();
+        File out = new File(dir, "timing_" + System.currentTimeMillis() + ".csv");
+        String msg;
+        try {
+            Writer w = new BufferedWriter(new FileWriter(out));
+            try {
+                soundEngine.getTimingStats().writeCsv(w);
+            } finally {
+                w.close();
+            }
+            msg = "CSV : " + out.getAbsolutePath();
+        } catch (IOException e) {
+            msg = "Export CSV impossible : " + e.getMessage();
+        }
+        Toast.makeText(this, msg, Toast.LENGTH_LONG).show();
+    }
 
-        if (volFactor < 0.0) volFactor = 0.0;
-        if (volFactor > 2.0) volFactor = 2.0;
-        if (pitch < 0.5) pitch = 0.5;
-        if (pitch > 2.0) pitch = 2.0;
+    // --- Export hors ligne ---
 
-        return new float[] { (float) volFactor, (float) pitch };
+    /**
+     * Rend BOUNCE_BARS tours du motif courant, une piste par fichier plus le master,
+     * dans un dossier bounce_<date>. Tourne sur un thread à part (les pistes sur un
+     * pool fork/join), sans toucher à la lecture en cours.
+     */
+    private void bounce() {
+        if (soundEngine == null) return;
+        final PatternSnapshot snap = circleView.getSnapshot();
+        final double sps = secondsPerStep;
+        final AudioGraph live = soundEngine.getGraph();
+        final StemExporter exporter = new StemExporter(soundEngine.getSampleRate(),
+                Runtime.getRuntime().availableProcessors());
+        for (int t = 0; t < snap.trackCount; t++) {
+            exporter.setSample(t, live.getSample(t));
+            exporter.setSampleMode(t, sequencer.isSampleMode(t));
+        }
+        exporter.setGains(drumSeek.getProgress() / 100.0, noteSeek.getProgress() / 100.0);
+        exporter.setGlitch(sequencer.getGlitchLevel(), System.nanoTime());
+
+        File base = getExternalFilesDir(null);
+        if (base == null) base = getFilesDir();
+        final File dir = new File(base, "bounce_" + System.currentTimeMillis());
+
+        new Thread(new Runnable() {
+            @Override public void run() {
+                String msg;
+                try {
+                    if (!dir.mkdirs()) throw new IOException("dossier " + dir);
+                    exporter.export(snap, sps, BOUNCE_BARS, dir, "stem");
+                    msg = "Export : " + dir.getAbsolutePath();
+                } catch (IOException e) {
+                    msg = "Export impossible : " + e.getMessage();
+                } finally {
+                    exporter.release();
+                }
+                final String text = msg;
+                runOnUiThread(new Runnable() {
+                    @Override public void run() {
+                        Toast.makeText(MainActivity.this, text, Toast.LENGTH_LONG).show();
+                    }
+                });
+            }
+        }, "bounce").start();
     }
 
     // --- Sauvegarde / restauration de l'état ---
@@ -1007,87 +1104,92 @@ public class MainActivity extends AppCompatActivity {
         SharedPreferences.Editor e = prefs.edit();
 
         e.putBoolean("has_state", true);
-        e.putInt("steps", steps);
-        e.putInt("pulsesOrange", pulsesOrange);
-        e.putInt("pulsesGreen", pulsesGreen);
-        e.putInt("pulsesPink", pulsesPink);
         e.putFloat("bpm", (float) currentBpm);
 
+        e.putInt("trackCount", tracks.count);
+        for (int t = 0; t < tracks.count; t++) {
+            e.putInt("steps_" + t, tracks.steps[t]);
+            e.putInt("pulses_" + t, tracks.pulses[t]);
+            e.putInt("rotation_" + t, tracks.rotation[t]);
+            e.putInt("voice_" + t, tracks.voice[t]);
+            e.putFloat("gain_" + t, tracks.gain[t]);
+            e.putBoolean("mute_" + t, tracks.mute[t]);
+            e.putInt("mode_" + t, sequencer.isSampleMode(t) ? 1 : 0);
+            e.putString("uri_" + t, (sampleUris[t] != null) ? sampleUris[t].toString() : null);
+        }
+
         if (drumSeek != null) e.putInt("drumVol", drumSeek.getProgress());
         if (noteSeek != null) e.putInt("noteVol", noteSeek.getProgress());
 
-        e.putFloat("glitchLevel", (float) glitchLevel);
+        e.putFloat("glitchLevel", (float) sequencer.getGlitchLevel());
         if (glitchSeek != null) e.putInt("glitchProgress", glitchSeek.getProgress());
 
-        e.putInt("modeKick",      (modeKick      == PlayMode.SAMPLE) ? 1 : 0);
-        e.putInt("modeSnare",     (modeSnare     == PlayMode.SAMPLE) ? 1 : 0);
-        e.putInt("modeHatOpen",   (modeHatOpen   == PlayMode.SAMPLE) ? 1 : 0);
-        e.putInt("modeHatClosed", (modeHatClosed == PlayMode.SAMPLE) ? 1 : 0);
-
-        e.putString("uriKick",      (uriKick      != null) ? uriKick.toString()      : null);
-        e.putString("uriSnare",     (uriSnare     != null) ? uriSnare.toString()     : null);
-        e.putString("uriHatOpen",   (uriHatOpen   != null) ? uriHatOpen.toString()   : null);
-        e.putString("uriHatClosed", (uriHatClosed != null) ? uriHatClosed.toString() : null);
-
         e.apply();
 
         Toast.makeText(this, "État sauvegardé", Toast.LENGTH_SHORT).show();
     }
 
-    private void restoreState(Button orangeRandom, Button greenRandom, Button pinkRandom) {
+    private void restoreState() {
         SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
         if (!prefs.getBoolean("has_state", false)) return;
 
-        steps        = prefs.getInt("steps", steps);
-        pulsesOrange = prefs.getInt("pulsesOrange", pulsesOrange);
-        pulsesGreen  = prefs.getInt("pulsesGreen",  pulsesGreen);
-        pulsesPink   = prefs.getInt("pulsesPink",   pulsesPink);
+        int legacySteps = prefs.getInt("steps", INITIAL_STEPS);
+        int count = prefs.getInt("trackCount", DEFAULT_VOICES.length);
+        count = Math.max(1, Math.min(TrackModel.MAX_TRACKS, count));
+
+        tracks.count = 0;
+        for (int t = 0; t < count; t++) {
+            int defPulses = (t < LEGACY_PULSES.length && LEGACY_PULSES[t] != null)
+                    ? prefs.getInt(LEGACY_PULSES[t], DEFAULT_PULSES[t])
+                    : 0;
+            int defRotation = (t < LEGACY_ROTATION.length && LEGACY_ROTATION[t] != null)
+                    ? prefs.getInt(LEGACY_ROTATION[t], 0)
+                    : 0;
+            int defVoice = (t < DEFAULT_VOICES.length) ? DEFAULT_VOICES[t] : t % AudioGraph.VOICE_COUNT;
+
+            tracks.add(prefs.getInt("steps_" + t, legacySteps),
+                    prefs.getInt("pulses_" + t, defPulses),
+                    prefs.getInt("voice_" + t, defVoice));
+            tracks.rotation[t] = prefs.getInt("rotation_" + t, defRotation);
+            tracks.gain[t] = prefs.getFloat("gain_" + t, 1f);
+            tracks.mute[t] = prefs.getBoolean("mute_" + t, false);
+        }
 
         float bpm = prefs.getFloat("bpm", (float) DEFAULT_BPM);
-        applyBpm(bpm); // remet le tempo (et relance la boucle)
+        applyBpm(bpm); // remet le tempo, sans relancer la boucle
 
         int drumVol = prefs.getInt("drumVol", 100);
         int noteVol = prefs.getInt("noteVol", 50);
         if (drumSeek != null) drumSeek.setProgress(drumVol);
         if (noteSeek != null) noteSeek.setProgress(noteVol);
 
-        glitchLevel = prefs.getFloat("glitchLevel", 0f);
+        double glitchLevel = prefs.getFloat("glitchLevel", 0f);
+        sequencer.setGlitchLevel(glitchLevel);
         int glitchProg = prefs.getInt("glitchProgress", (int) (glitchLevel * 100f));
         if (glitchSeek != null) glitchSeek.setProgress(glitchProg);
         if (glitchLabel != null) {
             glitchLabel.setText("Glitch level : " + glitchProg + " %");
         }
 
-        modeKick      = (prefs.getInt("modeKick", 0)      == 1) ? PlayMode.SAMPLE : PlayMode.SYNTH;
-        modeSnare     = (prefs.getInt("modeSnare", 0)     == 1) ? PlayMode.SAMPLE : PlayMode.SYNTH;
-        modeHatOpen   = (prefs.getInt("modeHatOpen", 0)   == 1) ? PlayMode.SAMPLE : PlayMode.SYNTH;
-        modeHatClosed = (prefs.getInt("modeHatClosed", 0) == 1) ? PlayMode.SAMPLE : PlayMode.SYNTH;
-
-        String sKick      = prefs.getString("uriKick", null);
-        String sSnare     = prefs.getString("uriSnare", null);
-        String sHatOpen   = prefs.getString("uriHatOpen", null);
-        String sHatClosed = prefs.getString("uriHatClosed", null);
-
-        if (sKick != null) {
-            uriKick = Uri.parse(sKick);
-            reloadSampleFromUri(uriKick, REQ_WAV_KICK);
-        }
-        if (sSnare != null) {
-            uriSnare = Uri.parse(sSnare);
-            reloadSampleFromUri(uriSnare, REQ_WAV_SNARE);
-        }
-        if (sHatOpen != null) {
-            uriHatOpen = Uri.parse(sHatOpen);
-            reloadSampleFromUri(uriHatOpen, REQ_WAV_HAT_OPEN);
-        }
-        if (sHatClosed != null) {
-            uriHatClosed = Uri.parse(sHatClosed);
-            reloadSampleFromUri(uriHatClosed, REQ_WAV_HAT_CLOSED);
+        for (int t = 0; t < tracks.count; t++) {
+            String legacyMode = (t < LEGACY_MODE.length) ? LEGACY_MODE[t] : null;
+            String legacyUri  = (t < LEGACY_URI.length)  ? LEGACY_URI[t]  : null;
+            int mode = prefs.getInt("mode_" + t,
+                    (legacyMode != null) ? prefs.getInt(legacyMode, 0) : 0);
+            String su = prefs.getString("uri_" + t,
+                    (legacyUri != null) ? prefs.getString(legacyUri, null) : null);
+
+            // mode sample tout de suite : synthèse jusqu'à ce que le sample arrive, sans
+            // retarder le premier temps, quels que soient le nombre et la taille des samples
+            sequencer.setSampleMode(t, mode == 1);
+            if (su != null) {
+                sampleUris[t] = Uri.parse(su);
+                reloadSampleFromUri(sampleUris[t], t, false); // le mode sauvegardé prime sur le chargement
+            }
         }
 
-        clampPulsesToSteps();
+        tracks.clampAll();
+        rebuildTrackRows();
         recomputePatternsAndUpdateView();
-        circleView.reactivateAll();
-        updateButtonLabels(orangeRandom, greenRandom, pinkRandom);
     }
 }
@@ -17,11 +17,8 @@ import android.widget.TextView;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 
 public class MicSampleRecorder {
 
@@ -177,17 +174,30 @@ public class MicSampleRecorder {
         audioRecord.release();
         audioRecord = null;
 
-        btnRec.setEnabled(true);
+        btnRec.setEnabled(false);
         btnStop.setEnabled(false);
+        btnPlay.setEnabled(false);
+        btnOk.setEnabled(false);
+        label.setText("Enregistrement du fichier…");
 
-        short[] pcm = new short[length];
+        final short[] pcm = new short[length];
         System.arraycopy(buffer, 0, pcm, 0, length);
-        normalize(pcm);
-        saveWav(pcm);
-
-        btnPlay.setEnabled(true);
-        btnOk.setEnabled(true);
-        label.setText("Fichier prêt.");
+        // normalisation et écriture hors du thread UI
+        new Thread(new Runnable() {
+            @Override public void run() {
+                normalize(pcm);
+                saveWav(pcm);
+                activity.runOnUiThread(new Runnable() {
+                    @Override public void run() {
+                        if (dialog == null || !dialog.isShowing()) return; // fermé entre-temps
+                        btnRec.setEnabled(true);
+                        btnPlay.setEnabled(true);
+                        btnOk.setEnabled(true);
+                        label.setText("Fichier prêt.");
+                    }
+                });
+            }
+        }, "MicSampleRecorder-save").start();
     }
 
     private void normalize(short[] pcm) {
@@ -208,47 +218,10 @@ public class MicSampleRecorder {
     private void saveWav(short[] pcm) {
         try {
             outputFile = new File(activity.getFilesDir(), name + ".wav");
-            BufferedOutputStream out =
-                    new BufferedOutputStream(new FileOutputStream(outputFile));
-
-            int dataLen = pcm.length * 2;
-            int sampleRate = SAMPLE_RATE;
-            int channels = 1;
-            int byteRate = sampleRate * channels * 2;
-
-            // RIFF header
-            out.write(new byte[]{ 'R','I','F','F' });
-            writeInt(out, 36 + dataLen);
-            out.write(new byte[]{ 'W','A','V','E','f','m','t',' ' });
-            writeInt(out, 16); // PCM chunk
-            writeShort(out, (short) 1); // PCM
-            writeShort(out, (short) channels);
-            writeInt(out, sampleRate);
-            writeInt(out, byteRate);
-            writeShort(out, (short) (channels * 2));
-            writeShort(out, (short) 16); // bits
-            out.write(new byte[]{ 'd','a','t','a' });
-            writeInt(out, dataLen);
-
-            for (short s : pcm) {
-                writeShort(out, s);
-            }
-            out.close();
+            WavWriter.writePcm16(outputFile, pcm, SAMPLE_RATE, 1);
         } catch (IOException ignored) {}
     }
 
-    private void writeInt(OutputStream out, int v) throws IOException {
-        out.write(v & 0xFF);
-        out.write((v >> 8) & 0xFF);
-        out.write((v >> 16) & 0xFF);
-        out.write((v >> 24) & 0xFF);
-    }
-
-    private void writeShort(OutputStream out, short v) throws IOException {
-        out.write(v & 0xFF);
-        out.write((v >> 8) & 0xFF);
-    }
-
     private void togglePlay() {
         if (outputFile == null) return;
 
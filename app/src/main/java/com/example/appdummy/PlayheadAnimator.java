@@ -0,0 +1,82 @@
+package com.example.appdummy;
+
+import android.view.Choreographer;
+
+/**
+ * Anime la tête de lecture au rythme de l'affichage (Choreographer) : à chaque
+ * vsync on demande au Playhead ce qui sera entendu quand la frame sera à l'écran,
+ * au lieu de réagir aux steps postés par le thread audio. Les steps devenus
+ * audibles depuis la frame précédente sont retirés du Playhead (drain) et
+ * fusionnés en une seule notification.
+ *
+ * L'instant visé = début de la frame + une période d'affichage (mesurée, lissée) :
+ * l'image dessinée maintenant n'apparaît qu'au vsync suivant.
+ */
+public class PlayheadAnimator implements Choreographer.FrameCallback {
+
+    public interface Listener {
+        /** Thread UI, une fois par frame d'affichage tant que la position est connue. */
+        void onPlayhead(long step, float fraction);
+
+        /**
+         * Thread UI, au plus une fois par frame : steps entendus depuis la frame
+         * précédente ; {@code firedMask} = OU de leurs pistes jouées.
+         */
+        void onStepsHeard(long lastStep, int firedMask);
+    }
+
+    private static final long DEFAULT_FRAME_NANOS = 16_666_667L;
+    private static final long MIN_FRAME_NANOS = 4_000_000L;   // 250 Hz
+    private static final long MAX_FRAME_NANOS = 50_000_000L;  // 20 Hz
+
+    private final Playhead playhead;
+    private final Listener listener;
+    private final Playhead.Position position = new Playhead.Position();
+    private final Playhead.Batch batch = new Playhead.Batch();
+
+    private boolean running = false;
+    private long lastFrameNanos = 0;
+    private long frameNanos = DEFAULT_FRAME_NANOS;
+
+    public PlayheadAnimator(Playhead playhead, Listener listener) {
+        this.playhead = playhead;
+        this.listener = listener;
+    }
+
+    /** Thread UI. */
+    public void start() {
+        if (running) return;
+        running = true;
+        lastFrameNanos = 0;
+        playhead.skipPending(); // steps accumulés pendant la pause : déjà passés
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /** Thread UI. */
+    public void stop() {
+        if (!running) return;
+        running = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override public void doFrame(long frameTimeNanos) {
+        if (!running) return;
+        if (lastFrameNanos != 0) {
+            long d = frameTimeNanos - lastFrameNanos;
+            // frames sautées ou écran qui ralentit : on ne garde que les périodes plausibles
+            if (d >= MIN_FRAME_NANOS && d <= MAX_FRAME_NANOS) frameNanos += (d - frameNanos) / 8;
+        }
+        lastFrameNanos = frameTimeNanos;
+
+        long shownAt = frameTimeNanos + frameNanos;
+        long heard = playhead.heardFrame(shownAt);
+        // sans horodatage de sortie on ne sait pas aligner : on prend tout
+        if (playhead.drain(heard < 0 ? Long.MAX_VALUE : heard, batch) > 0) {
+            listener.onStepsHeard(batch.step, batch.firedMask);
+        }
+        if (playhead.locate(shownAt, position)) {
+            listener.onPlayhead(position.step, position.fraction);
+        }
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
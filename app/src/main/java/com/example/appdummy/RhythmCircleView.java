@@ -4,51 +4,63 @@ import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Picture;
+import android.graphics.Typeface;
 import android.util.AttributeSet;
 import android.view.View;
 
-import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Vue circulaire :
- * - steps bleus (kick)
- * - pulses oranges (snare)
- * - pulses verts (hat open)
- * - pulses roses (hat closed)
+ * Vue circulaire, un anneau par piste (de l'extérieur vers l'intérieur) :
+ * - piste 0 (bleu, kick) : tous les steps
+ * - pistes suivantes : pulsations euclidiennes (orange, vert, rose, …)
+ * - chaque anneau a sa propre longueur ; l'aiguille suit la piste 0,
+ *   un repère blanc marque la position des autres
  * - chaque point peut être actif/inactif (entouré d’un cercle quand actif)
- * - fournit shouldPlay* et togglePointAt(x,y)
+ * - fournit getSnapshot() (lu par le thread audio) et togglePointAt(x,y)
+ * - couche statique (anneaux, points, contours) enregistrée une fois dans une
+ *   Picture avec la table des coordonnées de chaque point ; elle n'est refaite
+ *   que si le snapshot ou la taille change. À chaque step, on rejoue la couche
+ *   puis on dessine l'aiguille et les repères, sans trigonométrie
+ * - overlay de debug optionnel (setTimingOverlay) : gigue des steps, ticks
+ *   manqués, CPU du rendu
  */
-public class RhythmCircleView extends View {
+public class RhythmCircleView extends View implements Sequencer.SnapshotSource {
 
-    private int steps = 16;
     private double secondsPerStep = 0.5;
 
-    private boolean[] patternOrange = null;
-    private boolean[] patternGreen  = null;
-    private boolean[] patternPink   = null;
-
-    // états actifs/inactifs
-    private boolean[] activeBlue   = null;
-    private boolean[] activeOrange = null;
-    private boolean[] activeGreen  = null;
-    private boolean[] activePink   = null;
-
-    private float angleStep;
-
-    private final Paint stepPaint    = new Paint(Paint.ANTI_ALIAS_FLAG);
-    private final Paint orangePaint  = new Paint(Paint.ANTI_ALIAS_FLAG);
-    private final Paint greenPaint   = new Paint(Paint.ANTI_ALIAS_FLAG);
-    private final Paint pinkPaint    = new Paint(Paint.ANTI_ALIAS_FLAG);
+    // tout l'état des pistes, publié en un seul coup pour le thread audio
+    private final AtomicReference<PatternSnapshot> snapshot =
+            new AtomicReference<>(PatternSnapshot.of(new TrackModel()));
+
+    // couche statique et table des coordonnées des points, par piste et par step
+    private final Picture staticLayer = new Picture();
+    private PatternSnapshot layerSnap;
+    private int layerW = -1;
+    private int layerH = -1;
+    private final float[][] dotX = new float[TrackModel.MAX_TRACKS][];
+    private final float[][] dotY = new float[TrackModel.MAX_TRACKS][];
+    private final float[] dotR = new float[TrackModel.MAX_TRACKS];
+    private float handRadius;
+
+    // texte BPM, formaté seulement quand le tempo change
+    private String bpmText;
+
+    private final Paint ringPaint    = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint outlinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     private final Paint handPaint    = new Paint(Paint.ANTI_ALIAS_FLAG);
     private final Paint textPaint    = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint debugPaint   = new Paint(Paint.ANTI_ALIAS_FLAG);
 
-    private final Paint outlineBlue   = new Paint(Paint.ANTI_ALIAS_FLAG);
-    private final Paint outlineOrange = new Paint(Paint.ANTI_ALIAS_FLAG);
-    private final Paint outlineGreen  = new Paint(Paint.ANTI_ALIAS_FLAG);
-    private final Paint outlinePink   = new Paint(Paint.ANTI_ALIAS_FLAG);
+    // overlay de debug (null : masqué)
+    private TimingStats timingOverlay;
+    private SoundEngine.Metrics outputMetrics;
+    private SampleCache sampleCache;
+    private SampleStore sampleStore;
 
-    private int currentStep = 0;
-    private double currentBpm = 0.0;
+    private long masterStep = 0;   // step de l'horloge ; chaque anneau en prend le modulo
+    private float stepFraction = 0f; // part déjà entendue du step courant (aiguille continue)
 
     public RhythmCircleView(Context context, AttributeSet attrs) {
         super(context, attrs);
@@ -56,17 +68,7 @@ public class RhythmCircleView extends View {
     }
 
     private void init() {
-        stepPaint.setColor(Color.parseColor("#00BCD4"));
-        stepPaint.setStyle(Paint.Style.FILL);
-
-        orangePaint.setColor(Color.parseColor("#FFC107"));
-        orangePaint.setStyle(Paint.Style.FILL);
-
-        greenPaint.setColor(Color.parseColor("#8BC34A"));
-        greenPaint.setStyle(Paint.Style.FILL);
-
-        pinkPaint.setColor(Color.parseColor("#E91E63"));
-        pinkPaint.setStyle(Paint.Style.FILL);
+        ringPaint.setStyle(Paint.Style.FILL);
 
         handPaint.setColor(Color.WHITE);
         handPaint.setStrokeWidth(6f);
@@ -75,107 +77,90 @@ public class RhythmCircleView extends View {
         textPaint.setTextAlign(Paint.Align.CENTER);
         textPaint.setTextSize(80f);
 
-        outlineBlue.setColor(Color.WHITE);
-        outlineBlue.setStyle(Paint.Style.STROKE);
-        outlineBlue.setStrokeWidth(3f);
-
-        outlineOrange.setColor(Color.WHITE);
-        outlineOrange.setStyle(Paint.Style.STROKE);
-        outlineOrange.setStrokeWidth(3f);
-
-        outlineGreen.setColor(Color.WHITE);
-        outlineGreen.setStyle(Paint.Style.STROKE);
-        outlineGreen.setStrokeWidth(3f);
-
-        outlinePink.setColor(Color.WHITE);
-        outlinePink.setStyle(Paint.Style.STROKE);
-        outlinePink.setStrokeWidth(3f);
+        outlinePaint.setColor(Color.WHITE);
+        outlinePaint.setStyle(Paint.Style.STROKE);
+        outlinePaint.setStrokeWidth(3f);
 
-        recalc();
+        debugPaint.setColor(0xFFB2FF59);
+        debugPaint.setTypeface(Typeface.MONOSPACE);
+        debugPaint.setTextSize(28f);
     }
 
-    private void recalc() {
-        angleStep = 360f / Math.max(1, (float) steps);
-        ensureActiveArrays();
-        invalidate();
-    }
-
-    private void ensureActiveArrays() {
-        if (activeBlue == null || activeBlue.length != steps) {
-            activeBlue = new boolean[steps];
-            Arrays.fill(activeBlue, true);
-        }
-        if (activeOrange == null || activeOrange.length != steps) {
-            activeOrange = new boolean[steps];
-            Arrays.fill(activeOrange, true);
-        }
-        if (activeGreen == null || activeGreen.length != steps) {
-            activeGreen = new boolean[steps];
-            Arrays.fill(activeGreen, true);
-        }
-        if (activePink == null || activePink.length != steps) {
-            activePink = new boolean[steps];
-            Arrays.fill(activePink, true);
-        }
+    /** État courant des anneaux ; sûr à lire depuis n'importe quel thread. */
+    public PatternSnapshot getSnapshot() {
+        return snapshot.get();
     }
 
     public void reactivateAll() {
-        if (activeBlue   != null) Arrays.fill(activeBlue,   true);
-        if (activeOrange != null) Arrays.fill(activeOrange, true);
-        if (activeGreen  != null) Arrays.fill(activeGreen,  true);
-        if (activePink   != null) Arrays.fill(activePink,   true);
+        snapshot.set(snapshot.get().withAllActive());
         invalidate();
     }
 
+    /** Voix, gains, mutes : appliqués sans réactiver les points. */
+    public void updateTrackParams(TrackModel model) {
+        snapshot.set(snapshot.get().withParams(model));
+    }
+
     // API appelées depuis l'activité
 
-    public void setCurrentStep(int s) {
-        currentStep = ((s % Math.max(1, steps)) + steps) % steps;
-        invalidate();
+    /** Step maître courant (non borné) : chaque piste se place à masterStep % steps(t). */
+    public void setCurrentStep(long s) {
+        setPlayhead(s, 0f);
     }
 
-    public void setBpm(double bpm) {
-        currentBpm = bpm;
+    /**
+     * Step maître entendu et fraction [0, 1) déjà écoulée : l'aiguille avance en
+     * continu, les marqueurs des autres pistes restent sur leur step. Appelé à
+     * chaque frame d'affichage ; ne redessine que si la position a bougé.
+     */
+    public void setPlayhead(long s, float fraction) {
+        s = Math.max(0L, s);
+        if (s == masterStep && fraction == stepFraction) return;
+        masterStep = s;
+        stepFraction = fraction;
         invalidate();
     }
 
-    public void updatePatterns(boolean[] orange, boolean[] green, boolean[] pink,
-                               int steps, double secondsPerStep) {
-        this.steps = Math.max(1, steps);
-        this.secondsPerStep = Math.max(1e-6, secondsPerStep);
-
-        this.patternOrange = (orange != null) ? orange.clone() : null;
-        this.patternGreen  = (green  != null) ? green.clone()  : null;
-        this.patternPink   = (pink   != null) ? pink.clone()   : null;
+    /** Affiche (ou masque, si null) les mesures de timing ; rafraîchi à chaque step. */
+    public void setTimingOverlay(TimingStats stats) {
+        timingOverlay = stats;
+        invalidate();
+    }
 
-        activeBlue = activeOrange = activeGreen = activePink = null;
-        recalc();
+    /** Tampon de sortie et underruns, affichés avec l'overlay de timing. */
+    public void setOutputMetrics(SoundEngine.Metrics metrics) {
+        outputMetrics = metrics;
     }
 
-    // Logiciels de décision pour le son
+    /** Cache disque et mémoire des samples, affichés avec l'overlay de timing (null : masqués). */
+    public void setSampleStats(SampleCache cache, SampleStore store) {
+        sampleCache = cache;
+        sampleStore = store;
+    }
 
-    public boolean shouldPlayKick(int step) {
-        if (activeBlue == null) return true;
-        if (step < 0 || step >= activeBlue.length) return false;
-        return activeBlue[step];
+    public void setBpm(double bpm) {
+        bpmText = (bpm > 0.0) ? String.format("%d BPM", Math.round(bpm)) : null;
+        invalidate();
     }
 
-    public boolean shouldPlaySnare(int step) {
-        if (patternOrange == null || activeOrange == null) return false;
-        if (step < 0 || step >= patternOrange.length || step >= activeOrange.length) return false;
-        return patternOrange[step] && activeOrange[step];
+    /** Nouveaux motifs : tous les points redeviennent actifs. */
+    public void updatePatterns(TrackModel model, double secondsPerStep) {
+        this.secondsPerStep = Math.max(1e-6, secondsPerStep);
+        snapshot.set(PatternSnapshot.of(model));
+        invalidate();
     }
 
-    public boolean shouldPlayHatOpen(int step) {
-        if (patternGreen == null || activeGreen == null) return false;
-        if (step < 0 || step >= patternGreen.length || step >= activeGreen.length) return false;
-        return patternGreen[step] && activeGreen[step];
+    /** Rayon de l'anneau de la piste t, en fraction du rayon extérieur. */
+    private static float ringFactor(int t, int trackCount) {
+        float spacing = (trackCount <= 1) ? 0.15f : Math.min(0.15f, 0.6f / (trackCount - 1));
+        return 1f - t * spacing;
     }
 
-    public boolean shouldPlayHatClosed(int step) {
-        if (patternPink == null || activePink == null) return false;
-        if (step < 0 || step >= patternPink.length || step >= activePink.length) return false;
-        return patternPink[step] && activePink[step];
+    private static float dotRadius(int t, int trackCount, float r) {
+        float base = (t == 0) ? 9f : (t == 1) ? 6f : 5f;
+        if (trackCount <= 4) return base;
+        float spacing = Math.min(0.15f, 0.6f / (trackCount - 1));
+        return Math.max(2f, Math.min(base, spacing * r * 0.3f));
     }
 
     /**
@@ -195,69 +180,30 @@ public class RhythmCircleView extends View {
         float dy = yTouch - cy;
         float dist = (float) Math.sqrt(dx * dx + dy * dy);
 
-        float rBlue   = r;
-        float rOrange = r * 0.85f;
-        float rGreen  = r * 0.7f;
-        float rPink   = r * 0.55f;
+        PatternSnapshot snap = snapshot.get();
+        int n = snap.trackCount;
+        if (n == 0) return false;
 
         float tol = r * 0.12f;
-
-        float dBlue   = Math.abs(dist - rBlue);
-        float dOrange = Math.abs(dist - rOrange);
-        float dGreen  = Math.abs(dist - rGreen);
-        float dPink   = Math.abs(dist - rPink);
-
-        if (dBlue > tol && dOrange > tol && dGreen > tol && dPink > tol) {
-            return false;
+        int track = -1;
+        float minD = Float.MAX_VALUE;
+        for (int t = 0; t < n; t++) {
+            float d = Math.abs(dist - r * ringFactor(t, n));
+            if (d < minD) { minD = d; track = t; }
         }
+        if (minD > tol) return false;
 
+        int steps = snap.steps(track);
         float angleDeg = (float) Math.toDegrees(Math.atan2(dy, dx)) + 90f;
         if (angleDeg < 0f) angleDeg += 360f;
-        int index = Math.round(angleDeg / angleStep) % steps;
-
-        ensureActiveArrays();
-
-        int ring = 0;
-        float minD = dBlue;
-        if (dOrange < minD) { minD = dOrange; ring = 1; }
-        if (dGreen  < minD) { minD = dGreen;  ring = 2; }
-        if (dPink   < minD) { minD = dPink;   ring = 3; }
-
-        switch (ring) {
-            case 0:
-                activeBlue[index] = !activeBlue[index];
-                invalidate();
-                return true;
-            case 1:
-                if (patternOrange != null &&
-                    index < patternOrange.length &&
-                    patternOrange[index]) {
-                    activeOrange[index] = !activeOrange[index];
-                    invalidate();
-                    return true;
-                }
-                return false;
-            case 2:
-                if (patternGreen != null &&
-                    index < patternGreen.length &&
-                    patternGreen[index]) {
-                    activeGreen[index] = !activeGreen[index];
-                    invalidate();
-                    return true;
-                }
-                return false;
-            case 3:
-                if (patternPink != null &&
-                    index < patternPink.length &&
-                    patternPink[index]) {
-                    activePink[index] = !activePink[index];
-                    invalidate();
-                    return true;
-                }
-                return false;
-            default:
-                return false;
-        }
+        int index = Math.round(angleDeg / (360f / steps)) % steps;
+
+        // seuls les points présents dans le motif se togglent (piste 0 : tous)
+        if (!snap.isPulse(track, index)) return false;
+
+        snapshot.set(snap.withToggled(track, index));
+        invalidate();
+        return true;
     }
 
     @Override
@@ -270,86 +216,126 @@ public class RhythmCircleView extends View {
         int h = getHeight();
         float cx = w / 2f;
         float cy = h / 2f;
-        float r  = Math.min(w, h) * 0.4f;
 
-        ensureActiveArrays();
-
-        float rBlue   = r;
-        float rOrange = r * 0.85f;
-        float rGreen  = r * 0.7f;
-        float rPink   = r * 0.55f;
-
-        float baseBlueRadius   = 9f;
-        float baseOrangeRadius = 6f;
-        float baseGreenRadius  = 5f;
-        float basePinkRadius   = 5f;
-        float outlineDelta     = 4f;
-
-        // steps bleus
-        for (int i = 0; i < steps; i++) {
-            double rad = Math.toRadians(i * angleStep - 90);
-            float x = (float) (cx + rBlue * Math.cos(rad));
-            float y = (float) (cy + rBlue * Math.sin(rad));
-            canvas.drawCircle(x, y, baseBlueRadius, stepPaint);
-            if (activeBlue[i]) {
-                canvas.drawCircle(x, y, baseBlueRadius + outlineDelta, outlineBlue);
-            }
-        }
+        PatternSnapshot snap = snapshot.get();
+        if (snap != layerSnap || w != layerW || h != layerH) buildStaticLayer(snap, w, h);
+        canvas.drawPicture(staticLayer);
 
-        // orange
-        if (patternOrange != null) {
-            for (int i = 0; i < steps && i < patternOrange.length; i++) {
-                if (!patternOrange[i]) continue;
-                double rad = Math.toRadians(i * angleStep - 90);
-                float x = (float) (cx + rOrange * Math.cos(rad));
-                float y = (float) (cy + rOrange * Math.sin(rad));
-                canvas.drawCircle(x, y, baseOrangeRadius, orangePaint);
-                if (activeOrange != null && activeOrange[i]) {
-                    canvas.drawCircle(x, y, baseOrangeRadius + outlineDelta, outlineOrange);
-                }
+        int n = snap.trackCount;
+        if (n > 0) {
+            // position de chaque piste (t > 0) dans son propre cycle
+            for (int t = 1; t < n; t++) {
+                int i = (int) (masterStep % snap.steps(t));
+                canvas.drawCircle(dotX[t][i], dotY[t][i], dotR[t] * 0.5f, handPaint);
             }
+
+            // aiguille : sur l'anneau extérieur (piste 0), entre son step et le suivant
+            int steps0 = snap.steps(0);
+            double rad = Math.toRadians(((masterStep % steps0) + stepFraction) * 360.0 / steps0 - 90);
+            canvas.drawLine(cx, cy,
+                    (float) (cx + handRadius * Math.cos(rad)),
+                    (float) (cy + handRadius * Math.sin(rad)), handPaint);
         }
 
-        // vert
-        if (patternGreen != null) {
-            for (int i = 0; i < steps && i < patternGreen.length; i++) {
-                if (!patternGreen[i]) continue;
-                double rad = Math.toRadians(i * angleStep - 90);
-                float x = (float) (cx + rGreen * Math.cos(rad));
-                float y = (float) (cy + rGreen * Math.sin(rad));
-                canvas.drawCircle(x, y, baseGreenRadius, greenPaint);
-                if (activeGreen != null && activeGreen[i]) {
-                    canvas.drawCircle(x, y, baseGreenRadius + outlineDelta, outlineGreen);
-                }
-            }
+        // BPM
+        if (bpmText != null) {
+            Paint.FontMetrics fm = textPaint.getFontMetrics();
+            float textY = cy - (fm.ascent + fm.descent) / 2f;
+            canvas.drawText(bpmText, cx, textY, textPaint);
         }
 
-        // rose
-        if (patternPink != null) {
-            for (int i = 0; i < steps && i < patternPink.length; i++) {
-                if (!patternPink[i]) continue;
-                double rad = Math.toRadians(i * angleStep - 90);
-                float x = (float) (cx + rPink * Math.cos(rad));
-                float y = (float) (cy + rPink * Math.sin(rad));
-                canvas.drawCircle(x, y, basePinkRadius, pinkPaint);
-                if (activePink != null && activePink[i]) {
-                    canvas.drawCircle(x, y, basePinkRadius + outlineDelta, outlinePink);
+        if (timingOverlay != null) drawTimingOverlay(canvas, timingOverlay);
+    }
+
+    /** Calcule les coordonnées des points et enregistre les anneaux dans staticLayer. */
+    private void buildStaticLayer(PatternSnapshot snap, int w, int h) {
+        layerSnap = snap;
+        layerW = w;
+        layerH = h;
+
+        float cx = w / 2f;
+        float cy = h / 2f;
+        float r  = Math.min(w, h) * 0.4f;
+        int n = snap.trackCount;
+        float outlineDelta = 4f;
+
+        handRadius = r * ringFactor(0, n);
+
+        Canvas c = staticLayer.beginRecording(Math.max(1, w), Math.max(1, h));
+        for (int t = 0; t < n; t++) {
+            int steps = snap.steps(t);
+            float rt = r * ringFactor(t, n);
+            float dot = dotRadius(t, n, r);
+            float step = 360f / steps;
+
+            float[] xs = dotX[t];
+            float[] ys = dotY[t];
+            if (xs == null || xs.length < steps) {
+                xs = dotX[t] = new float[steps];
+                ys = dotY[t] = new float[steps];
+            }
+            dotR[t] = dot;
+
+            ringPaint.setColor(TrackPalette.ring(t));
+            for (int i = 0; i < steps; i++) {
+                double rad = Math.toRadians(i * step - 90);
+                float x = (float) (cx + rt * Math.cos(rad));
+                float y = (float) (cy + rt * Math.sin(rad));
+                xs[i] = x;
+                ys[i] = y;
+                if (!snap.isPulse(t, i)) continue;
+                c.drawCircle(x, y, dot, ringPaint);
+                if (snap.isActive(t, i)) {
+                    c.drawCircle(x, y, dot + outlineDelta, outlinePaint);
                 }
             }
         }
+        staticLayer.endRecording();
+    }
 
-        // aiguille
-        double rad = Math.toRadians(currentStep * angleStep - 90);
-        float hx = (float) (cx + rBlue * Math.cos(rad));
-        float hy = (float) (cy + rBlue * Math.sin(rad));
-        canvas.drawLine(cx, cy, hx, hy, handPaint);
-
-        // BPM
-        if (currentBpm > 0.0) {
-            String txt = String.format("%d BPM", Math.round(currentBpm));
-            Paint.FontMetrics fm = textPaint.getFontMetrics();
-            float textY = cy - (fm.ascent + fm.descent) / 2f;
-            canvas.drawText(txt, cx, textY, textPaint);
+    private void drawTimingOverlay(Canvas canvas, TimingStats stats) {
+        LatencyHistogram j = stats.getJitter();
+        LatencyHistogram cpu = stats.getCallbackCpu();
+        float line = debugPaint.getTextSize() * 1.2f;
+        float x = 12f;
+        float y = line;
+        canvas.drawText("jitter p50 " + micros(j.getValueAtPercentile(50))
+                + "  p99 " + micros(j.getValueAtPercentile(99))
+                + "  max " + micros(j.getMax()), x, y, debugPaint);
+        y += line;
+        canvas.drawText("missed ticks " + stats.getMissedTicks()
+                + "  (" + j.getTotalCount() + " steps)", x, y, debugPaint);
+        y += line;
+        long p99 = cpu.getValueAtPercentile(99);
+        canvas.drawText("callback CPU p50 " + micros(cpu.getValueAtPercentile(50))
+                + "  p99 " + micros(p99)
+                + "  (" + (100 * p99 / Math.max(1, stats.getBlockBudgetNanos())) + " %)", x, y, debugPaint);
+        SoundEngine.Metrics m = outputMetrics;
+        if (m != null) {
+            y += line;
+            canvas.drawText("buffer " + m.bufferFrames + "/" + m.capacityFrames + " fr ("
+                    + Math.round(m.outputLatencyMs) + " ms)  underruns " + m.underruns
+                    + "  +" + m.bufferGrows + "/-" + m.bufferShrinks
+                    + "  stream underruns " + m.streamUnderruns, x, y, debugPaint);
         }
+        SampleCache c = sampleCache;
+        if (c != null) {
+            y += line;
+            canvas.drawText("sample cache hits " + c.getHits() + "  misses " + c.getMisses()
+                    + "  " + Math.max(0, c.getSizeBytes()) / 1024 + "/" + c.getMaxBytes() / 1024 + " KB"
+                    + "  evicted " + c.getEvictions(), x, y, debugPaint);
+        }
+        SampleStore st = sampleStore;
+        if (st != null) {
+            y += line;
+            canvas.drawText("sample memory " + st.getResidentBytes() / 1024 + "/"
+                    + st.getBudgetBytes() / 1024 + " KB  evicted " + st.getEvictionCount(),
+                    x, y, debugPaint);
+        }
+    }
+
+    private static String micros(long nanos) {
+        if (nanos >= 10_000_000L) return (nanos / 1_000_000L) + " ms";
+        return (nanos / 1000L) + " µs";
     }
 }
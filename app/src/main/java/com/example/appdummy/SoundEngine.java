@@ -1,199 +1,300 @@
 package com.example.appdummy;
 
-import android.media.AudioAttributes;
-import android.media.AudioFormat;
-import android.media.AudioManager;
-import android.media.AudioTrack;
+import android.os.Process;
+
+import java.io.IOException;
 
 /**
- * Moteur sonore :
- * - Bleu  : KICK  + note LA
- * - Orange: SNARE + note DO
- * - Vert  : HAT_OPEN  + note MI
- * - Rose  : HAT_CLOSED+ note SOL
+ * Moteur sonore temps réel : fait jouer un AudioGraph (voix, samples, mixage,
+ * module :core) dans une AudioTrack.
+ *
+ * Sortie :
+ *   une seule AudioTrack MODE_STREAM en PCM float (AudioTrackSink), alimentée
+ *   bloc par bloc par AudioGraph.render sur un thread de rendu. Le tampon part du
+ *   minimum basse latence du périphérique et s'adapte aux underruns (getMetrics).
  *
- * Volumes relatifs réglables :
- *   - setDrumGain(0..1)  : intensité des percussions
- *   - setNoteGain(0..1)  : intensité des notes
+ * Horloge :
+ *   le thread de rendu écrit en continu dans la piste ; l'écriture bloquante
+ *   cadence la boucle sur l'horloge de la carte son.
+ *
+ * Planification (lookahead) :
+ *   un thread de planification fait avancer StepClock jusqu'à lookahead ms devant
+ *   le rendu et appelle le listener de steps ; les play* du graphe n'y déclenchent
+ *   rien directement, ils déposent des événements datés dans un EventRing. Le thread
+ *   de rendu les consomme bloc par bloc, à leur frame exacte. Un retard du
+ *   listener (UI, GC…) est absorbé par la fenêtre au lieu de s'entendre.
+ *   Instrumentation : avance minimale du planning, underflows, événements en retard,
+ *   gigue des steps et CPU par bloc (TimingStats).
  */
 public class SoundEngine {
 
-    private enum Waveform { KICK, SNARE, HAT_OPEN, HAT_CLOSED }
-
+    // horloge + rendu
+    private static final int BLOCK_FRAMES = 256;
+    private static final int DEFAULT_LOOKAHEAD_MS = 80;
+    private static final int TIMESTAMP_EVERY_BLOCKS = 8; // ~50 ms
     private final int sampleRate;
+    private final StepClock clock;
+    private final AudioGraph graph;
+    private final TimingStats timing;
+    private final Playhead playhead;
+    private final SampleStreamer streamer = new SampleStreamer();
+    private volatile StepClock.Listener stepListener;
+    private volatile boolean rendering = false;
+    private Thread renderThread;
+    private Thread schedulerThread;
+    private volatile AudioTrackSink sink;
+    private final int framesPerBurst;
+
+    // planification en avance
+    private volatile int lookaheadFrames;
+    private volatile long renderedFrames = 0;  // fin du dernier bloc rendu
+    private volatile long scheduledFrames = 0; // horloge planifiée jusqu'ici
+
+    // instrumentation (écrite par le thread de rendu)
+    private volatile long minLeadFrames = Long.MAX_VALUE;
+    private volatile long underflows = 0;
 
-    // gains
-    private double drumGain = 1.0;
-    private double noteGain = 0.5;
-
-    private AudioTrack kickTrack;
-    private AudioTrack snareTrack;
-    private AudioTrack hatOpenTrack;
-    private AudioTrack hatClosedTrack;
+    /**
+     * Mesures de la sortie à un instant donné (lues par l'UI ou la QA).
+     */
+    public static final class Metrics {
+        /** Tampon de sortie utilisé / maximum / burst du périphérique, en frames. */
+        public final int bufferFrames;
+        public final int capacityFrames;
+        public final int burstFrames;
+        /** Latence de sortie due au tampon, en ms. */
+        public final double outputLatencyMs;
+        /** Underruns de la piste depuis l'ouverture. */
+        public final long underruns;
+        /** Ajustements du tampon (agrandi / réduit). */
+        public final int bufferGrows;
+        public final int bufferShrinks;
+        /** Frames de samples streamés jouées avant d'être chargées depuis le disque. */
+        public final long streamUnderruns;
+
+        Metrics(int bufferFrames, int capacityFrames, int burstFrames, double outputLatencyMs,
+                long underruns, int bufferGrows, int bufferShrinks, long streamUnderruns) {
+            this.bufferFrames = bufferFrames;
+            this.capacityFrames = capacityFrames;
+            this.burstFrames = burstFrames;
+            this.outputLatencyMs = outputLatencyMs;
+            this.underruns = underruns;
+            this.bufferGrows = bufferGrows;
+            this.bufferShrinks = bufferShrinks;
+            this.streamUnderruns = streamUnderruns;
+        }
+    }
 
     public SoundEngine(int sampleRateHz) {
+        this(sampleRateHz, 0);
+    }
+
+    /**
+     * @param burstFrames frames par burst du périphérique
+     *                    (AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER), 0 si inconnu
+     */
+    public SoundEngine(int sampleRateHz, int burstFrames) {
         this.sampleRate = sampleRateHz;
-        rebuildTracks();
+        this.framesPerBurst = burstFrames;
+        this.clock = new StepClock(sampleRateHz, 0.5);
+        this.graph = new AudioGraph(sampleRateHz);
+        this.timing = new TimingStats(sampleRateHz, BLOCK_FRAMES);
+        graph.setTimingStats(timing);
+        this.playhead = new Playhead(sampleRateHz);
+        graph.setStepRenderedListener(new AudioGraph.StepRenderedListener() {
+            @Override public void onStepRendered(long stepIndex, int firedMask, long frame) {
+                playhead.mark(stepIndex, frame, firedMask);
+            }
+        });
+        this.lookaheadFrames = DEFAULT_LOOKAHEAD_MS * sampleRateHz / 1000;
+        graph.setStreamer(streamer);
+        streamer.start();
+        startRenderThread();
     }
 
-    public void setDrumGain(double gain) {
-        drumGain = Math.max(0.0, Math.min(1.0, gain));
-        rebuildTracks();
+    public int getSampleRate() { return sampleRate; }
+
+    public StepClock getClock() { return clock; }
+
+    /** Voix, samples et gains ; ses play* s'appellent depuis le listener de steps. */
+    public AudioGraph getGraph() { return graph; }
+
+    /**
+     * Listener appelé à chaque step de l'horloge, sur le thread de planification,
+     * jusqu'à getLookaheadMs() avant que le step soit entendu.
+     */
+    public void setStepListener(StepClock.Listener l) {
+        stepListener = l;
     }
 
-    public void setNoteGain(double gain) {
-        noteGain = Math.max(0.0, Math.min(1.0, gain));
-        rebuildTracks();
+    /** Fenêtre de planification en avance sur le rendu (bornée à 10..500 ms). */
+    public void setLookaheadMs(int ms) {
+        lookaheadFrames = Math.max(10, Math.min(500, ms)) * sampleRate / 1000;
     }
 
-    public void playKick()      { playOnce(kickTrack); }
-    public void playSnare()     { playOnce(snareTrack); }
-    public void playHatOpen()   { playOnce(hatOpenTrack); }
-    public void playHatClosed() { playOnce(hatClosedTrack); }
+    public int getLookaheadMs() {
+        return lookaheadFrames * 1000 / sampleRate;
+    }
 
-    public void release() {
-        releaseInternal();
+    /** Plus petite avance du planning sur le bloc rendu depuis resetScheduleStats (ms). */
+    public double getMinScheduleLeadMs() {
+        long m = minLeadFrames;
+        return (m == Long.MAX_VALUE) ? Double.NaN : m * 1000.0 / sampleRate;
+    }
+
+    /** Blocs rendus alors que le planning ne les couvrait pas entièrement. */
+    public long getScheduleUnderflows() { return underflows; }
+
+    /** Événements arrivés après le début de leur bloc (joués en retard, à l'offset 0). */
+    public long getLateEvents() { return graph.getLateEvents(); }
+
+    /** Événements perdus, file pleine. */
+    public long getDroppedEvents() { return graph.getDroppedEvents(); }
+
+    /** Taille du tampon, latence de sortie et underruns (null si la sortie n'a pas pu s'ouvrir). */
+    public Metrics getMetrics() {
+        AudioTrackSink s = sink;
+        if (s == null) return null;
+        BufferTuner t = s.getTuner();
+        int frames = s.getBufferFrames();
+        return new Metrics(frames, s.getCapacityFrames(), t.getBurstFrames(),
+                frames * 1000.0 / sampleRate, t.getUnderruns(), t.getGrowCount(), t.getShrinkCount(),
+                streamer.getUnderruns());
     }
 
-    private void rebuildTracks() {
-        releaseInternal();
+    /**
+     * Step entendu et sa progression, latence de sortie comprise, et steps rendus
+     * à vider (drain) : à lire depuis l'UI à chaque frame d'affichage (le thread
+     * audio ne poste rien à l'UI).
+     */
+    public Playhead getPlayhead() { return playhead; }
 
-        short[] kickBuf      = synthBuffer(Waveform.KICK,       80.0,   180,  2, 150);
-        short[] snareBuf     = synthBuffer(Waveform.SNARE,    2000.0,   140,  1, 120);
-        short[] hatOpenBuf   = synthBuffer(Waveform.HAT_OPEN,  8000.0,  120,  1, 100);
-        short[] hatClosedBuf = synthBuffer(Waveform.HAT_CLOSED,8000.0,   60,  1,  40);
+    /** Gigue des steps, ticks manqués et CPU du rendu (overlay de debug, export CSV). */
+    public TimingStats getTimingStats() { return timing; }
 
-        kickTrack      = makeStaticTrack(kickBuf);
-        snareTrack     = makeStaticTrack(snareBuf);
-        hatOpenTrack   = makeStaticTrack(hatOpenBuf);
-        hatClosedTrack = makeStaticTrack(hatClosedBuf);
+    public void resetScheduleStats() {
+        minLeadFrames = Long.MAX_VALUE;
+        timing.reset();
     }
 
-    private void releaseInternal() {
-        try { if (kickTrack      != null) { kickTrack.release();      kickTrack = null; } } catch (Throwable ignored) {}
-        try { if (snareTrack     != null) { snareTrack.release();     snareTrack = null; } } catch (Throwable ignored) {}
-        try { if (hatOpenTrack   != null) { hatOpenTrack.release();   hatOpenTrack = null; } } catch (Throwable ignored) {}
-        try { if (hatClosedTrack != null) { hatClosedTrack.release(); hatClosedTrack = null; } } catch (Throwable ignored) {}
+    public void setDrumGain(double gain) {
+        graph.setDrumGain(gain);
+    }
+
+    public void setNoteGain(double gain) {
+        graph.setNoteGain(gain);
     }
 
-    private AudioTrack makeStaticTrack(short[] pcm) {
-        int bufferBytes = pcm.length * 2;
+    public void release() {
+        stopRenderThread();
+        streamer.release();
+    }
 
-        AudioAttributes attrs = new AudioAttributes.Builder()
-                .setUsage(AudioAttributes.USAGE_MEDIA)
-                .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
-                .build();
+    private void startRenderThread() {
+        sink = AudioTrackSink.open(sampleRate, BLOCK_FRAMES, framesPerBurst);
+        if (sink == null) return;
 
-        AudioFormat format = new AudioFormat.Builder()
-                .setSampleRate(sampleRate)
-                .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
-                .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
-                .build();
+        rendering = true;
+        renderThread = new Thread(new Runnable() {
+            @Override public void run() { renderLoop(); }
+        }, "SoundEngine-render");
+        renderThread.start();
 
-        AudioTrack track = new AudioTrack(
-                attrs, format, bufferBytes, AudioTrack.MODE_STATIC,
-                AudioManager.AUDIO_SESSION_ID_GENERATE
-        );
-        track.write(pcm, 0, pcm.length);
-        return track;
+        schedulerThread = new Thread(new Runnable() {
+            @Override public void run() { scheduleLoop(); }
+        }, "SoundEngine-scheduler");
+        schedulerThread.start();
     }
 
-    /**
-     * Version robuste : on évite stop(), on remet la piste dans un état propre, puis on joue.
-     */
-    private void playOnce(AudioTrack t) {
-        if (t == null) return;
-        if (t.getState() != AudioTrack.STATE_INITIALIZED) return;
-        try {
-            t.pause();
-            t.flush();
-            t.setPlaybackHeadPosition(0);
-            t.play();
-        } catch (IllegalStateException ignored) {
-            // on ignore ce tick si Android est grognon
+    private void stopRenderThread() {
+        rendering = false;
+        if (schedulerThread != null) {
+            schedulerThread.interrupt();
+            try { schedulerThread.join(500); } catch (InterruptedException ignored) {}
+            schedulerThread = null;
+        }
+        if (renderThread != null) {
+            try { renderThread.join(500); } catch (InterruptedException ignored) {}
+            renderThread = null;
+        }
+        if (sink != null) {
+            sink.release();
+            sink = null;
         }
     }
 
     /**
-     * Synthèse d'un buffer percussif + note :
-     *   x = drumGain * drum + noteGain * note
+     * Boucle du thread de planification : garde l'horloge lookahead frames devant
+     * le rendu. Se réveille plusieurs fois par fenêtre ; un réveil en retard ne
+     * coûte que de l'avance, tant qu'il reste dans la fenêtre.
      */
-    private short[] synthBuffer(Waveform wf,
-                                double baseFreqHz,
-                                int durMs,
-                                int attackMs,
-                                int decayMs) {
-
-        int n = (int) Math.round(durMs * sampleRate / 1000.0);
-        if (n < 1) n = 1;
-
-        double twoPiBase = 2.0 * Math.PI * baseFreqHz / sampleRate;
-
-        double noteFreqHz;
-        switch (wf) {
-            case KICK:       noteFreqHz = 440.0;  break; // LA
-            case SNARE:      noteFreqHz = 261.63; break; // DO
-            case HAT_OPEN:   noteFreqHz = 329.63; break; // MI
-            case HAT_CLOSED: noteFreqHz = 392.00; break; // SOL
-            default:         noteFreqHz = baseFreqHz;    break;
+    private void scheduleLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        AudioTrackSink out = sink;
+        while (rendering) {
+            long target = renderedFrames + lookaheadFrames;
+            long from = clock.getFramePosition();
+            if (target > from) {
+                // tout ce qui est planifié ou dans la piste est encore à entendre
+                clock.setOutputLatencyFrames(out.getBufferFrames() + (int) (from - renderedFrames));
+                graph.setScheduleBase(from);
+                clock.advance((int) (target - from), stepListener);
+                scheduledFrames = target;
+            }
+            long sleepMs = Math.max(2, lookaheadFrames * 250L / sampleRate); // ~ fenêtre / 4
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                return;
+            }
         }
-        double twoPiNote = 2.0 * Math.PI * noteFreqHz / sampleRate;
-
-        short[] pcm = new short[n];
-
-        int a = Math.max(0, Math.min(n, (int) Math.round(attackMs * sampleRate / 1000.0)));
-        int d = Math.max(0, Math.min(n - a, (int) Math.round(decayMs  * sampleRate / 1000.0)));
-        int releaseStart = n - d;
+    }
 
-        for (int i = 0; i < n; i++) {
-            double env;
-            if (i < a) {
-                env = (a == 0) ? 1.0 : (i / (double) a);
-            } else if (i >= releaseStart) {
-                int k = i - releaseStart;
-                env = (d == 0) ? 0.0 : (1.0 - k / (double) d);
+    /**
+     * Boucle du thread audio : les événements planifiés qui tombent dans le bloc
+     * sont déclenchés à leur offset, puis le bloc est mixé et écrit.
+     */
+    private void renderLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        float[] block = new float[BLOCK_FRAMES];
+        AudioTrackSink out = sink;
+        out.play();
+        long blocks = 0;
+        long trackBase = renderedFrames; // frame 0 de la piste = début de cette boucle
+        while (rendering) {
+            long blockStart = renderedFrames;
+            long blockEnd = blockStart + BLOCK_FRAMES;
+            if (clock.isRunning()) {
+                long lead = scheduledFrames - blockEnd;
+                if (lead < minLeadFrames) minLeadFrames = lead;
+                if (lead < 0) underflows++;
             } else {
-                env = 1.0;
+                graph.clearEvents(); // arrêt : on ne joue pas la fin de la fenêtre déjà planifiée
             }
-
-            double toneBase = Math.sin(twoPiBase * i);
-            double toneNote = Math.sin(twoPiNote * i);
-            double noise    = (Math.random() * 2.0 - 1.0);
-
-            double drum;
-            double note;
-
-            switch (wf) {
-                case KICK:
-                    drum = 0.7 * toneBase + 0.1 * noise;
-                    note = 0.3 * toneNote;
-                    break;
-                case SNARE:
-                    drum = 0.8 * noise;
-                    note = 0.3 * toneNote;
-                    break;
-                case HAT_OPEN:
-                    drum = 0.8 * noise;
-                    note = 0.35 * toneNote;
-                    break;
-                case HAT_CLOSED:
-                    drum = 0.7 * noise;
-                    note = 0.4 * toneNote;
-                    break;
-                default:
-                    drum = 0.0;
-                    note = 0.0;
+            long t0 = System.nanoTime();
+            timing.beginBlock(blockStart, t0);
+            graph.render(block, blockStart, BLOCK_FRAMES);
+            timing.endBlock(System.nanoTime() - t0);
+            try {
+                out.write(block, 0, BLOCK_FRAMES);
+            } catch (IOException e) {
+                break;
             }
-
-            double x = drumGain * drum + noteGain * note;
-
-            double y = env * x;
-            int s = (int) Math.round(y * 0.9 * Short.MAX_VALUE);
-            if (s > Short.MAX_VALUE) s = Short.MAX_VALUE;
-            if (s < Short.MIN_VALUE) s = Short.MIN_VALUE;
-            pcm[i] = (short) s;
+            renderedFrames = blockEnd;
+            if (++blocks % TIMESTAMP_EVERY_BLOCKS == 0) publishTimestamp(out, trackBase, blockEnd);
         }
+    }
 
-        return pcm;
+    /**
+     * Publie pour l'UI quelle frame sort du haut-parleur et quand. L'horodatage
+     * matériel de la piste quand il existe ; sinon on estime que ce qui vient d'être
+     * écrit sortira après le tampon de la piste.
+     */
+    private void publishTimestamp(AudioTrackSink out, long trackBase, long writtenEnd) {
+        if (out.updateTimestamp()) {
+            playhead.setTimestamp(trackBase + out.getTimestampFrame(), out.getTimestampNanos());
+        } else {
+            playhead.setTimestamp(writtenEnd - out.getBufferFrames(), System.nanoTime());
+        }
     }
 }
@@ -0,0 +1,32 @@
+package com.example.appdummy;
+
+/**
+ * Couleurs des pistes (anneau, rangée de boutons, leds), par index de piste.
+ * Les 4 premières reprennent bleu / orange / vert / rose ; au-delà, on cycle.
+ */
+public final class TrackPalette {
+
+    private TrackPalette() {}
+
+    //                                       bleu        orange      vert        rose        violet      orange f.   indigo      sarcelle
+    private static final int[] RING      = { 0xFF00BCD4, 0xFFFFC107, 0xFF8BC34A, 0xFFE91E63, 0xFFBA68C8, 0xFFFF7043, 0xFF7986CB, 0xFF4DB6AC };
+    private static final int[] MAIN      = { 0xFF2196F3, 0xFFFF9800, 0xFF4CAF50, 0xFFE91E63, 0xFF9C27B0, 0xFFFF5722, 0xFF3F51B5, 0xFF009688 };
+    private static final int[] LIGHT     = { 0xFF2196F3, 0xFFFFCC80, 0xFFA5D6A7, 0xFFF8BBD0, 0xFFE1BEE7, 0xFFFFCCBC, 0xFFC5CAE9, 0xFFB2DFDB };
+    private static final int[] DARK      = { 0xFF0D47A1, 0xFFBF360C, 0xFF1B5E20, 0xFF880E4F, 0xFF4A148C, 0xFF6D2A12, 0xFF1A237E, 0xFF004D40 };
+    private static final int[] FLASH_ON  = { 0xFF00BCD4, 0xFFFFC107, 0xFF4CAF50, 0xFFE91E63, 0xFFBA68C8, 0xFFFF7043, 0xFF7986CB, 0xFF4DB6AC };
+    private static final int[] FLASH_OFF = { 0xFF004A6F, 0xFF7A5A00, 0xFF1B5E20, 0xFF880E4F, 0xFF4A148C, 0xFF6D2A12, 0xFF1A237E, 0xFF004D40 };
+
+    private static final String[] NAMES = { "blue", "orange", "green", "pink", "purple", "deep orange", "indigo", "teal" };
+
+    public static int ring(int t)     { return RING[t % RING.length]; }
+    public static int main(int t)     { return MAIN[t % MAIN.length]; }
+    public static int light(int t)    { return LIGHT[t % LIGHT.length]; }
+    public static int dark(int t)     { return DARK[t % DARK.length]; }
+    public static int flashOn(int t)  { return FLASH_ON[t % FLASH_ON.length]; }
+    public static int flashOff(int t) { return FLASH_OFF[t % FLASH_OFF.length]; }
+
+    public static String name(int t) {
+        String n = NAMES[t % NAMES.length];
+        return (t < NAMES.length) ? n : n + " " + (t / NAMES.length + 1);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.appdummy;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compteur JMH des frames audio produites ou lues par un benchmark.
+ * Rapporté comme résultat secondaire "frames" (ns par frame en mode AverageTime) ;
+ * BenchMain en déduit le facteur temps réel.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class AudioFrames {
+
+    public static final int SAMPLE_RATE = 44_100;
+
+    public long frames;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        frames = 0;
+    }
+}
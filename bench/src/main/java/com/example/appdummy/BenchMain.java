@@ -0,0 +1,49 @@
+package com.example.appdummy;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+/**
+ * Lance JMH avec les options de la ligne de commande, plus le profileur GC
+ * (gc.alloc.rate.norm = octets alloués par opération), puis affiche le facteur
+ * temps réel des benchmarks audio (compteur AudioFrames) :
+ *   temps réel = durée audio produite / temps de calcul.
+ */
+public class BenchMain {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+
+        System.out.println();
+        System.out.println("Facteur temps réel (" + AudioFrames.SAMPLE_RATE + " Hz) :");
+        for (RunResult r : results) {
+            Result frames = r.getSecondaryResults().get("frames");
+            if (frames == null || !frames.getScoreUnit().startsWith("ns/")) continue;
+            double nsPerFrame = frames.getScore();
+            if (nsPerFrame <= 0) continue;
+            double factor = 1e9 / (nsPerFrame * AudioFrames.SAMPLE_RATE);
+            System.out.printf("  %-60s x%,.0f%n", label(r.getParams()), factor);
+        }
+    }
+
+    private static String label(BenchmarkParams p) {
+        String name = p.getBenchmark();
+        StringBuilder sb = new StringBuilder(name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1));
+        for (String k : p.getParamsKeys()) {
+            sb.append(' ').append(k).append('=').append(p.getParam(k));
+        }
+        return sb.toString();
+    }
+}
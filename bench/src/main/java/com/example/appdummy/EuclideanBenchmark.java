@@ -0,0 +1,62 @@
+package com.example.appdummy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Génération des motifs euclidiens : lecture de table (<= 32 steps), calcul
+ * complet (fill, sans limite de taille) et snapshot du modèle à chaque édition.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EuclideanBenchmark {
+
+    @Param({ "16", "32", "64" })
+    public int steps;
+
+    private long[] words;
+    private TrackModel model;
+    private int pulses;
+
+    @Setup
+    public void setup() {
+        words = new long[EuclideanPatterns.words(steps)];
+        model = new TrackModel();
+        int s = Math.min(steps, 64);
+        model.add(s, s, 0);
+        for (int t = 1; t < 8; t++) model.add(s, (t * 5) % (s + 1), t % 4);
+    }
+
+    @Benchmark
+    public long tableLookup() {
+        int p = pulses = (pulses + 3) % (steps + 1);
+        return EuclideanPatterns.get(steps, p, p);
+    }
+
+    @Benchmark
+    public long[] fill() {
+        int p = pulses = (pulses + 3) % (steps + 1);
+        EuclideanPatterns.fill(steps, p, p, words);
+        return words;
+    }
+
+    @Benchmark
+    public PatternSnapshot snapshot() {
+        return PatternSnapshot.of(model);
+    }
+}
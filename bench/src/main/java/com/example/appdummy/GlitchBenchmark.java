@@ -0,0 +1,69 @@
+package com.example.appdummy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Glitch : tirage (volume, pitch) d'un coup de sample, et step complet du
+ * séquenceur (planification des voix de 8 pistes en mode sample).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GlitchBenchmark {
+
+    private static final int BLOCK_FRAMES = 256;
+
+    private AudioGraph graph;
+    private Sequencer sequencer;
+    private final float[] block = new float[BLOCK_FRAMES];
+    private long step;
+    private long frame;
+
+    @Setup
+    public void setup() {
+        TrackModel m = new TrackModel();
+        for (int t = 0; t < 8; t++) m.add(16, 16, t % 4);
+        final PatternSnapshot snap = PatternSnapshot.of(m);
+
+        graph = new AudioGraph(AudioFrames.SAMPLE_RATE);
+        sequencer = new Sequencer(graph, new Sequencer.SnapshotSource() {
+            @Override public PatternSnapshot getSnapshot() { return snap; }
+        }, new Random(1));
+        sequencer.setGlitchLevel(0.5);
+        float[] pcm = new float[2048];
+        for (int t = 0; t < 8; t++) {
+            graph.setSample(t, pcm);
+            sequencer.setSampleMode(t, true);
+        }
+    }
+
+    @Benchmark
+    public void glitchedVolumeAndPitch() {
+        sequencer.makeGlitchedVolumeAndPitch();
+    }
+
+    /** Un step planifié puis son bloc rendu (la file d'événements reste vide entre deux appels). */
+    @Benchmark
+    public float[] stepAndRender() {
+        graph.setScheduleBase(frame);
+        sequencer.onStep(step++, 0);
+        graph.render(block, frame, BLOCK_FRAMES);
+        frame += BLOCK_FRAMES;
+        return block;
+    }
+}
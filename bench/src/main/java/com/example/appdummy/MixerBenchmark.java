@@ -0,0 +1,67 @@
+package com.example.appdummy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mixage d'un bloc de 256 frames avec N voix actives, à hauteur d'origine
+ * (rate = 1) ou transposées (interpolation). Les voix terminées sont relancées
+ * pour garder N voix en permanence.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MixerBenchmark {
+
+    private static final int BLOCK_FRAMES = 256;
+
+    @Param({ "1", "4", "8", "16" })
+    public int voices;
+
+    @Param({ "1.0", "1.1" })
+    public float rate;
+
+    private final Mixer mixer = new Mixer();
+    private final float[] block = new float[BLOCK_FRAMES];
+    private float[] pcm;
+    private float[] layer2;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(1);
+        pcm = new float[AudioFrames.SAMPLE_RATE];
+        layer2 = new float[AudioFrames.SAMPLE_RATE];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = r.nextFloat() * 2f - 1f;
+            layer2[i] = r.nextFloat() * 2f - 1f;
+        }
+        mixer.setBusGain(1, 0.8f);
+        mixer.setBusGain(2, 0.5f);
+        mixer.snapBusGains();
+    }
+
+    @Benchmark
+    public float[] mixBlock(AudioFrames counter) {
+        for (int n = mixer.getActiveVoiceCount(); n < voices; n++) {
+            mixer.trigger(pcm, 1, layer2, 2, 0.5f, rate, 0, 0, 0);
+        }
+        mixer.render(block, BLOCK_FRAMES);
+        counter.frames += BLOCK_FRAMES;
+        return block;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.appdummy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Évaluation d'un step (anciennement shouldPlay* par anneau) : quelles pistes
+ * jouent au step maître suivant. TrackScheduler (tas des prochaines pulsations)
+ * contre le balayage direct de toutes les pistes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatternEvalBenchmark {
+
+    @Param({ "4", "16" })
+    public int tracks;
+
+    private PatternSnapshot snap;
+    private final TrackScheduler scheduler = new TrackScheduler();
+    private long step;
+
+    @Setup
+    public void setup() {
+        TrackModel m = new TrackModel();
+        m.add(16, 16, 0);
+        for (int t = 1; t < tracks; t++) {
+            int s = 5 + (t * 7) % 12;
+            m.add(s, 1 + (t * 3) % s, t % 4);
+        }
+        snap = PatternSnapshot.of(m);
+    }
+
+    @Benchmark
+    public int scheduler() {
+        return scheduler.fire(snap, step++);
+    }
+
+    @Benchmark
+    public int scan() {
+        long s = step++;
+        int fired = 0;
+        for (int t = 0; t < snap.trackCount; t++) {
+            if (snap.fires(t, (int) (s % snap.steps(t)))) fired |= 1 << t;
+        }
+        return fired;
+    }
+}
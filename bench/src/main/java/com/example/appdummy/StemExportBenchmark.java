@@ -0,0 +1,66 @@
+package com.example.appdummy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export en stems (master + une piste par stem) selon la taille du pool, sans
+ * écriture pour ne pas mesurer le disque : 8 pistes polymétriques, 4 mesures à
+ * 120 BPM.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StemExportBenchmark {
+
+    private static final int TRACKS = 8;
+    private static final int BARS = 4;
+    private static final double SECONDS_PER_STEP = 60.0 / 120.0;
+
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    private PatternSnapshot snap;
+    private StemExporter exporter;
+
+    @Setup
+    public void setup() {
+        // motifs polymétriques variés, une voix par piste à tour de rôle
+        TrackModel m = new TrackModel();
+        m.add(16, 16, AudioGraph.VOICE_KICK);
+        for (int t = 1; t < TRACKS; t++) {
+            int steps = 5 + (t * 7) % 12;
+            m.add(steps, 1 + (t * 3) % steps, t % AudioGraph.VOICE_COUNT);
+        }
+        snap = PatternSnapshot.of(m);
+        exporter = new StemExporter(AudioFrames.SAMPLE_RATE, threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        exporter.release();
+    }
+
+    @Benchmark
+    public long export(AudioFrames counter) throws IOException {
+        long frames = exporter.export(snap, SECONDS_PER_STEP, BARS, null, null);
+        counter.frames += frames;
+        return frames;
+    }
+}
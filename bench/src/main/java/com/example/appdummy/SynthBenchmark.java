@@ -0,0 +1,47 @@
+package com.example.appdummy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Synthèse d'une voix complète (successeur de SoundEngine.synthBuffer). */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SynthBenchmark {
+
+    @Param({ "0", "1", "2", "3" })
+    public int voice;
+
+    private SynthKernel.Patch patch;
+    private float[] drum;
+    private float[] note;
+
+    @Setup
+    public void setup() {
+        patch = AudioGraph.patch(voice);
+        int n = patch.frames(AudioFrames.SAMPLE_RATE);
+        drum = new float[n];
+        note = new float[n];
+    }
+
+    @Benchmark
+    public int renderVoice(AudioFrames counter) {
+        int n = SynthKernel.render(patch, AudioFrames.SAMPLE_RATE, 0x9E3779B9 * (voice + 1), 0.9f, drum, note);
+        counter.frames += n;
+        return n;
+    }
+}
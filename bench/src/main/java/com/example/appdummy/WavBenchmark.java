@@ -0,0 +1,102 @@
+package com.example.appdummy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entrées/sorties WAV :
+ * - encodage : blocs float écrits par WavWriter (PCM 16 bits ou float 32 bits)
+ * - décodage : WavReader.readMono d'une seconde de PCM 16 bits en mémoire
+ *   (avec rééchantillonnage quand le débit cible diffère)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WavBenchmark {
+
+    private static final int BLOCK_FRAMES = 256;
+
+    @State(Scope.Thread)
+    public static class Encode {
+        @Param({ "false", "true" })
+        public boolean floatFormat;
+
+        final float[] block = new float[BLOCK_FRAMES];
+        File file;
+        WavWriter writer;
+
+        @Setup
+        public void setup() {
+            Random r = new Random(1);
+            for (int i = 0; i < BLOCK_FRAMES; i++) block[i] = r.nextFloat() * 2f - 1f;
+        }
+
+        @Setup(Level.Iteration)
+        public void open() throws IOException {
+            file = File.createTempFile("bench", ".wav");
+            writer = new WavWriter(file, AudioFrames.SAMPLE_RATE, 1, floatFormat);
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws IOException {
+            writer.close();
+            file.delete();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Decode {
+        @Param({ "44100", "48000" })
+        public int targetRate;
+
+        byte[] wavBytes;
+
+        @Setup
+        public void setup() throws IOException {
+            Random r = new Random(1);
+            short[] pcm = new short[AudioFrames.SAMPLE_RATE];
+            for (int i = 0; i < pcm.length; i++) pcm[i] = (short) r.nextInt();
+            File f = File.createTempFile("bench", ".wav");
+            try {
+                WavWriter.writePcm16(f, pcm, AudioFrames.SAMPLE_RATE, 1);
+                wavBytes = Files.readAllBytes(f.toPath());
+            } finally {
+                f.delete();
+            }
+        }
+    }
+
+    @Benchmark
+    public long encodeBlock(Encode e, AudioFrames counter) throws IOException {
+        e.writer.write(e.block, 0, BLOCK_FRAMES);
+        counter.frames += BLOCK_FRAMES;
+        return e.writer.getDataBytes();
+    }
+
+    @Benchmark
+    public float[] decode(Decode d, AudioFrames counter) throws IOException {
+        float[] out = WavReader.readMono(new ByteArrayInputStream(d.wavBytes), d.targetRate);
+        counter.frames += AudioFrames.SAMPLE_RATE;
+        return out;
+    }
+}
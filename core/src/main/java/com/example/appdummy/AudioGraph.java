@@ -0,0 +1,339 @@
+package com.example.appdummy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Graphe de rendu du séquenceur, sans dépendance Android :
+ * - Bleu  : KICK  + note LA
+ * - Orange: SNARE + note DO
+ * - Vert  : HAT_OPEN  + note MI
+ * - Rose  : HAT_CLOSED+ note SOL
+ *
+ * Voix de synthèse (SynthKernel) et samples par slot passent par le même Mixer.
+ * Les composantes percussion et note sont synthétisées une fois, séparément, et
+ * combinées au mixage sur deux bus (setDrumGain / setNoteGain) : bouger un slider
+ * ne coûte aucune allocation. HAT_CLOSED coupe (choke) HAT_OPEN.
+ *
+ * Les play* déposent des événements datés (frame absolue = scheduleBase + offset)
+ * dans un EventRing ; render() les déclenche à leur frame exacte puis mixe le bloc.
+ * Producteur et consommateur peuvent être deux threads (SoundEngine, en avance)
+ * ou le même (OfflineRenderer, plus vite que le temps réel).
+ *
+ * Réglages (gains, samples des slots) : l'UI ne touche pas à l'état du rendu, elle
+ * dépose des commandes dans un CommandRing que render() applique en début de bloc.
+ * Un seul thread règle le graphe (l'UI, ou le thread du rendu hors ligne).
+ */
+public class AudioGraph {
+
+    // voix de synthèse internes
+    public static final int VOICE_KICK       = 0;
+    public static final int VOICE_SNARE      = 1;
+    public static final int VOICE_HAT_OPEN   = 2;
+    public static final int VOICE_HAT_CLOSED = 3;
+    public static final int VOICE_COUNT      = 4;
+
+    private static final String[] VOICE_NAMES = { "kick", "snare", "hatOpen", "hatClosed" };
+
+    // un slot de sample par piste
+    public static final int SLOT_COUNT = TrackModel.MAX_TRACKS;
+
+    /**
+     * Appelé sur le thread de rendu quand un step (repère markStep) est effectivement
+     * rendu ; {@code frame} = frame absolue où il commence dans le flux rendu.
+     */
+    public interface StepRenderedListener {
+        void onStepRendered(long stepIndex, int firedMask, long frame);
+    }
+
+    //                                                     base  tone noise   note  amp   dur att dec
+    private static final SynthKernel.Patch[] PATCHES = {
+            new SynthKernel.Patch(  80.0, 0.7, 0.1, 440.00, 0.30, 180, 2, 150), // KICK + LA
+            new SynthKernel.Patch(2000.0, 0.0, 0.8, 261.63, 0.30, 140, 1, 120), // SNARE + DO
+            new SynthKernel.Patch(8000.0, 0.0, 0.8, 329.63, 0.35, 120, 1, 100), // HAT_OPEN + MI
+            new SynthKernel.Patch(8000.0, 0.0, 0.7, 392.00, 0.40,  60, 1,  40), // HAT_CLOSED + SOL
+    };
+    private static final int SEED_BASE = 0x9E3779B9;
+
+    private static final int BUS_DRUM = 1;
+    private static final int BUS_NOTE = 2;
+
+    // commandes UI -> rendu
+    private static final int CMD_BUS_GAIN = 0; // cible = bus, valeur = gain
+    private static final int CMD_SAMPLE   = 1; // cible = slot, ref = SampleData (null : retiré)
+    private static final int CMD_STAGE    = 2; // cible = slot, ref = SampleData installé au prochain markBar
+
+    private static final int CHOKE_HAT = 1;
+    private static final int[] VOICE_GROUP  = { 0, 0, CHOKE_HAT, CHOKE_HAT };
+    private static final int[] VOICE_CHOKES = { 0, 0, 0,         CHOKE_HAT };
+
+    private final int sampleRate;
+
+
+    // composantes synthétisées, immuables : [voix] -> percussion / note
+    private final float[][] drumBuffers = new float[VOICE_COUNT][];
+    private final float[][] noteBuffers = new float[VOICE_COUNT][];
+
+    // samples des slots : demandés (producteur, lisibles de partout) / installés (rendu)
+    private final AtomicReferenceArray<SampleData> requestedSamples =
+            new AtomicReferenceArray<>(SLOT_COUNT);
+    private final SampleData[] samples = new SampleData[SLOT_COUNT];
+    private final SampleData[] staged = new SampleData[SLOT_COUNT]; // en attente du début de mesure
+    private int stagedMask = 0;
+
+    // usage des slots, vu du producteur : frame du dernier coup, slots voulus mais vides
+    private final AtomicLongArray lastTriggerFrame = new AtomicLongArray(SLOT_COUNT);
+    private final AtomicInteger wantedSamples = new AtomicInteger();
+
+    private final Mixer mixer = new Mixer();
+    private final CommandRing commands = new CommandRing(256);
+    private final EventRing events = new EventRing(512);
+    private volatile StepRenderedListener stepRenderedListener;
+    private volatile TimingStats timing;
+    private long scheduleBase = 0; // frame du début de la fenêtre planifiée (producteur)
+    private volatile long lateEvents = 0;
+
+    public AudioGraph(int sampleRateHz) {
+        this.sampleRate = sampleRateHz;
+        for (int v = 0; v < VOICE_COUNT; v++) synthBuffer(v);
+        mixer.setBusGain(BUS_DRUM, 1.0f);
+        mixer.setBusGain(BUS_NOTE, 0.5f);
+        mixer.snapBusGains();
+    }
+
+    /** Nom court d'une voix (noms de fichiers d'export). */
+    public static String voiceName(int voice) {
+        return VOICE_NAMES[Math.floorMod(voice, VOICE_COUNT)];
+    }
+
+    /** Réglages de synthèse d'une voix (immuables), tels que rendus par le graphe. */
+    public static SynthKernel.Patch patch(int voice) {
+        return PATCHES[Math.floorMod(voice, VOICE_COUNT)];
+    }
+
+    public int getSampleRate() { return sampleRate; }
+
+    public void setDrumGain(double gain) {
+        commands.push(CMD_BUS_GAIN, BUS_DRUM, (float) Math.max(0.0, Math.min(1.0, gain)), null);
+    }
+
+    public void setNoteGain(double gain) {
+        commands.push(CMD_BUS_GAIN, BUS_NOTE, (float) Math.max(0.0, Math.min(1.0, gain)), null);
+    }
+
+    public void setStepRenderedListener(StepRenderedListener l) {
+        stepRenderedListener = l;
+    }
+
+    /** Lecture en flux des samples longs, à fixer avant le démarrage du rendu. */
+    public void setStreamer(SampleStreamer s) {
+        mixer.setStreamer(s);
+    }
+
+    /** Mesure de la gigue des steps rendus (null : aucune mesure, ex. rendu hors ligne). */
+    public void setTimingStats(TimingStats stats) {
+        timing = stats;
+    }
+
+    /** Installe (ou retire, si null) le sample d'un slot au début du prochain bloc. */
+    public void setSample(int slot, SampleData sample) {
+        requestedSamples.set(slot, sample);
+        commands.push(CMD_SAMPLE, slot, 0f, sample);
+    }
+
+    /**
+     * Installe le sample d'un slot au prochain début de mesure (markBar) : jusque-là
+     * les coups du slot jouent l'ancien sample, ou la voix de synthèse s'il n'y en
+     * avait pas. Toutes les pistes changent de son sur la même frame. Un setSample
+     * du même slot entre-temps annule l'attente.
+     */
+    public void stageSample(int slot, SampleData sample) {
+        requestedSamples.set(slot, sample);
+        commands.push(CMD_STAGE, slot, 0f, sample);
+    }
+
+    /** Comme setSample(int, SampleData), en float 32 bits (copie hors tas de pcm). */
+    public void setSample(int slot, float[] pcm) {
+        setSample(slot, pcm != null ? SampleData.of(pcm, false) : null);
+    }
+
+    /** Dernier sample demandé pour le slot (éventuellement pas encore installé). */
+    public SampleData getSample(int slot) {
+        return requestedSamples.get(slot);
+    }
+
+    public boolean hasSample(int slot) {
+        return requestedSamples.get(slot) != null;
+    }
+
+    /** Frame planifiée du dernier coup joué sur le slot (0 : jamais), pour l'éviction LRU. */
+    public long getLastTriggerFrame(int slot) {
+        return lastTriggerFrame.get(slot);
+    }
+
+    /** Producteur : un coup voulait le sample du slot, mais le slot est vide (évincé, en chargement). */
+    public void requestSample(int slot) {
+        int bit = 1 << slot;
+        int m;
+        do {
+            m = wantedSamples.get();
+            if ((m & bit) != 0) return;
+        } while (!wantedSamples.compareAndSet(m, m | bit));
+    }
+
+    /** Slots demandés depuis le dernier appel (bit s = slot s), remis à zéro. */
+    public int takeRequestedSamples() {
+        return wantedSamples.getAndSet(0);
+    }
+
+    /** Commandes perdues, file pleine (rendu arrêté pendant qu'on règle). */
+    public long getDroppedCommands() { return commands.getDropped(); }
+
+    // --- producteur : à appeler depuis le listener de steps, frameOffset étant celui reçu par onStep ---
+
+    /** Frame absolue qui correspond à l'offset 0 de la fenêtre passée à StepClock.advance. */
+    public void setScheduleBase(long frame) {
+        scheduleBase = frame;
+    }
+
+    /** Joue une voix de synthèse interne. */
+    public void playVoice(int voice, float gain, int frameOffset) {
+        events.pushVoice(scheduleBase + frameOffset, voice % VOICE_COUNT, gain);
+    }
+
+    /** Joue le sample d'un slot ; {@code voice} décide du groupe de choke. */
+    public void playSample(int slot, int voice, float gain, float rate, int frameOffset) {
+        lastTriggerFrame.lazySet(slot, scheduleBase + frameOffset);
+        events.pushSample(scheduleBase + frameOffset, slot, voice % VOICE_COUNT, gain, rate);
+    }
+
+    /** Début de mesure : les samples passés à stageSample y sont installés. */
+    public void markBar(int frameOffset) {
+        events.pushBar(scheduleBase + frameOffset);
+    }
+
+    /** Pose un repère : le StepRenderedListener sera appelé quand ce step sera rendu. */
+    public void markStep(long stepIndex, int firedMask, int frameOffset) {
+        events.pushMark(scheduleBase + frameOffset, stepIndex, firedMask);
+    }
+
+    // --- consommateur (thread de rendu) ---
+
+    /** Oublie les événements planifiés mais pas encore rendus. */
+    public void clearEvents() {
+        events.clear();
+    }
+
+    /**
+     * Rend {@code frames} frames à partir de la frame absolue blockStart :
+     * événements du bloc déclenchés à leur offset, mixage, écrêtage à [-1, 1].
+     */
+    public void render(float[] block, long blockStart, int frames) {
+        applyCommands();
+        dispatchEvents(blockStart, blockStart + frames);
+        mixer.render(block, frames);
+        for (int i = 0; i < frames; i++) {
+            float x = block[i];
+            if (x > 1f) block[i] = 1f;
+            else if (x < -1f) block[i] = -1f;
+        }
+    }
+
+    public int getActiveVoiceCount() {
+        return mixer.getActiveVoiceCount();
+    }
+
+    /** Événements arrivés après le début de leur bloc (joués en retard, à l'offset 0). */
+    public long getLateEvents() { return lateEvents; }
+
+    /** Événements perdus, file pleine. */
+    public long getDroppedEvents() { return events.getDropped(); }
+
+    private void applyCommands() {
+        CommandRing cmd = commands;
+        while (!cmd.isEmpty()) {
+            switch (cmd.peekKind()) {
+                case CMD_BUS_GAIN:
+                    mixer.setBusGain(cmd.peekTarget(), cmd.peekValue());
+                    break;
+                case CMD_SAMPLE:
+                    samples[cmd.peekTarget()] = (SampleData) cmd.peekRef();
+                    staged[cmd.peekTarget()] = null;
+                    stagedMask &= ~(1 << cmd.peekTarget());
+                    break;
+                case CMD_STAGE:
+                    staged[cmd.peekTarget()] = (SampleData) cmd.peekRef();
+                    stagedMask |= 1 << cmd.peekTarget();
+                    break;
+                default:
+                    break;
+            }
+            cmd.pop();
+        }
+    }
+
+    private void dispatchEvents(long blockStart, long blockEnd) {
+        EventRing ev = events;
+        while (!ev.isEmpty()) {
+            long at = ev.peekFrame();
+            if (at >= blockEnd) break;
+            int offset = 0;
+            if (at < blockStart) lateEvents++;
+            else offset = (int) (at - blockStart);
+
+            int v = ev.peekVoice();
+            switch (ev.peekKind()) {
+                case EventRing.KIND_VOICE:
+                    mixer.trigger(drumBuffers[v], BUS_DRUM, noteBuffers[v], BUS_NOTE,
+                            ev.peekGain(), 1f, VOICE_GROUP[v], VOICE_CHOKES[v], offset);
+                    break;
+                case EventRing.KIND_SAMPLE:
+                    SampleData sample = samples[ev.peekSlot()];
+                    if (sample != null) {
+                        mixer.trigger(sample, ev.peekGain(), ev.peekRate(),
+                                VOICE_GROUP[v], VOICE_CHOKES[v], offset);
+                    } else {
+                        // slot vidé entre la planification et le rendu, ou sample
+                        // en attente de la mesure suivante : voix de synthèse
+                        mixer.trigger(drumBuffers[v], BUS_DRUM, noteBuffers[v], BUS_NOTE,
+                                ev.peekGain(), 1f, VOICE_GROUP[v], VOICE_CHOKES[v], offset);
+                    }
+                    break;
+                case EventRing.KIND_BAR:
+                    for (int m = stagedMask; m != 0; m &= m - 1) {
+                        int s = Integer.numberOfTrailingZeros(m);
+                        samples[s] = staged[s];
+                        staged[s] = null;
+                    }
+                    stagedMask = 0;
+                    break;
+                case EventRing.KIND_MARK:
+                    TimingStats ts = timing;
+                    if (ts != null) ts.stepRendered(at, blockStart + offset);
+                    StepRenderedListener l = stepRenderedListener;
+                    if (l != null) l.onStepRendered(ev.peekStep(), ev.peekFired(), blockStart + offset);
+                    break;
+                default:
+                    break;
+            }
+            ev.pop();
+        }
+    }
+
+    /**
+     * Synthèse des deux composantes d'une voix, enveloppe comprise :
+     *   drumBuffers[voice] = env * drum,  noteBuffers[voice] = env * note
+     * (le mélange drumGain * drum + noteGain * note se fait au mixage).
+     * Graine fixe par voix : le rendu est identique d'un lancement à l'autre.
+     */
+    private void synthBuffer(int voice) {
+        SynthKernel.Patch patch = PATCHES[voice];
+        int n = patch.frames(sampleRate);
+        float[] drumPcm = new float[n];
+        float[] notePcm = new float[n];
+        SynthKernel.render(patch, sampleRate, SEED_BASE * (voice + 1), 0.9f, drumPcm, notePcm);
+        drumBuffers[voice] = drumPcm;
+        noteBuffers[voice] = notePcm;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.appdummy;
+
+import java.io.IOException;
+
+/**
+ * Destination des blocs rendus (fichier WAV, sortie audio…).
+ * Les frames sont en float [-1, 1], entrelacées si plusieurs canaux.
+ */
+public interface AudioSink {
+
+    void write(float[] buf, int offset, int frames) throws IOException;
+}
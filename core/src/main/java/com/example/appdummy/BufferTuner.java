@@ -0,0 +1,88 @@
+package com.example.appdummy;
+
+/**
+ * Taille adaptative du tampon de sortie, en frames.
+ *
+ * - départ au plus bas : minFrames (en général deux bursts du périphérique)
+ * - underrun constaté : +1 burst, jusqu'à maxFrames
+ * - STABLE_SECONDS sans underrun : -1 burst, sans descendre sous le plancher
+ * - un underrun peu après une réduction relève le plancher : cette taille-là
+ *   ne tient pas sur ce périphérique, on n'y redescend plus
+ *
+ * Sans dépendance Android : update() reçoit le compteur d'underruns de la sortie
+ * (ex. AudioTrack.getUnderrunCount) et renvoie la taille voulue. Un seul thread
+ * appelle update (celui qui écrit dans la sortie) ; les getters se lisent de partout.
+ */
+public final class BufferTuner {
+
+    /** Durée sans underrun avant de retirer un burst. */
+    private static final double STABLE_SECONDS = 10.0;
+
+    private final int burstFrames;
+    private final int maxFrames;
+    private final long stableFrames;
+
+    private int floorFrames;
+    private volatile int sizeFrames;
+    private volatile long underruns = 0;
+    private volatile int grows = 0;
+    private volatile int shrinks = 0;
+
+    private int lastUnderrunCount = -1;
+    private long framesSinceChange = 0;
+    private boolean lastChangeWasShrink = false;
+
+    public BufferTuner(int burstFrames, int minFrames, int maxFrames, int sampleRate) {
+        this.burstFrames = Math.max(1, burstFrames);
+        this.maxFrames = Math.max(1, maxFrames);
+        this.floorFrames = Math.max(1, Math.min(minFrames, this.maxFrames));
+        this.sizeFrames = floorFrames;
+        this.stableFrames = (long) (STABLE_SECONDS * sampleRate);
+    }
+
+    /**
+     * Après l'écriture de {@code framesWritten} frames.
+     * @param underrunCount compteur cumulé d'underruns de la sortie
+     * @return taille de tampon voulue (frames)
+     */
+    public int update(int underrunCount, int framesWritten) {
+        if (lastUnderrunCount < 0) lastUnderrunCount = underrunCount; // référence au premier bloc
+        int fresh = underrunCount - lastUnderrunCount;
+        lastUnderrunCount = underrunCount;
+
+        int size = sizeFrames;
+        if (fresh > 0) {
+            underruns += fresh;
+            if (lastChangeWasShrink && framesSinceChange < stableFrames) {
+                floorFrames = Math.min(maxFrames, size + burstFrames);
+            }
+            if (size < maxFrames) {
+                size = Math.min(maxFrames, size + burstFrames);
+                grows++;
+            }
+            framesSinceChange = 0;
+            lastChangeWasShrink = false;
+        } else {
+            framesSinceChange += framesWritten;
+            if (framesSinceChange >= stableFrames && size - burstFrames >= floorFrames) {
+                size -= burstFrames;
+                shrinks++;
+                framesSinceChange = 0;
+                lastChangeWasShrink = true;
+            }
+        }
+        sizeFrames = size;
+        return size;
+    }
+
+    /** Taille voulue, en frames. */
+    public int getSizeFrames() { return sizeFrames; }
+
+    public int getBurstFrames() { return burstFrames; }
+
+    public long getUnderruns() { return underruns; }
+
+    public int getGrowCount() { return grows; }
+
+    public int getShrinkCount() { return shrinks; }
+}
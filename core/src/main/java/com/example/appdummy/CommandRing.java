@@ -0,0 +1,55 @@
+package com.example.appdummy;
+
+/**
+ * File de commandes de l'UI (producteur) vers le thread de rendu (consommateur),
+ * appliquées au début du bloc suivant (SpscRing).
+ *
+ * Commande = (type, cible, valeur) en primitives, plus une référence facultative
+ * vers un objet déjà construit par le producteur (ex. buffer d'un sample). Les
+ * types sont définis par le consommateur (cf. AudioGraph).
+ */
+public final class CommandRing extends SpscRing {
+
+    private final int[]    kind;
+    private final int[]    target;
+    private final float[]  value;
+    private final Object[] ref;
+
+    public CommandRing(int capacity) {
+        super(capacity);
+        int c = capacity();
+        kind   = new int[c];
+        target = new int[c];
+        value  = new float[c];
+        ref    = new Object[c];
+    }
+
+    // --- producteur ---
+
+    public boolean push(int k, int t, float v, Object r) {
+        int i = claim();
+        if (i < 0) return false;
+        kind[i]   = k;
+        target[i] = t;
+        value[i]  = v;
+        ref[i]    = r;
+        publish(); // publie la commande
+        return true;
+    }
+
+    // --- consommateur : peek* lisent la commande en tête, pop la retire ---
+
+    public int peekKind()    { return kind[headIndex()]; }
+    public int peekTarget()  { return target[headIndex()]; }
+    public float peekValue() { return value[headIndex()]; }
+    public Object peekRef()  { return ref[headIndex()]; }
+
+    @Override public void pop() {
+        ref[headIndex()] = null; // ne retient pas l'ancien buffer
+        super.pop();
+    }
+
+    @Override public void clear() {
+        while (!isEmpty()) pop();
+    }
+}
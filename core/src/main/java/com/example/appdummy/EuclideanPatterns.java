@@ -0,0 +1,123 @@
+package com.example.appdummy;
+
+/**
+ * Rythmes euclidiens (algorithme de Bjorklund) avec rotation, sous forme de masques :
+ * le bit i vaut 1 si le step i est une pulsation.
+ *
+ * Tous les (steps, pulses, rotation) jusqu'à TABLE_MAX_STEPS sont calculés une fois
+ * au chargement de la classe : get() est une simple lecture de table.
+ * Au-delà, fill() écrit le motif sur plusieurs mots de 64 bits.
+ */
+public final class EuclideanPatterns {
+
+    public static final int TABLE_MAX_STEPS = 32;
+
+    // TABLE[steps][pulses * steps + rotation]
+    private static final long[][] TABLE = new long[TABLE_MAX_STEPS + 1][];
+
+    static {
+        boolean[] scratch = new boolean[TABLE_MAX_STEPS];
+        long[] word = new long[1];
+        for (int steps = 1; steps <= TABLE_MAX_STEPS; steps++) {
+            long[] row = new long[(steps + 1) * steps];
+            for (int pulses = 0; pulses <= steps; pulses++) {
+                bjorklund(steps, pulses, scratch);
+                for (int rot = 0; rot < steps; rot++) {
+                    pack(scratch, steps, rot, word);
+                    row[pulses * steps + rot] = word[0];
+                }
+            }
+            TABLE[steps] = row;
+        }
+    }
+
+    private EuclideanPatterns() {}
+
+    /**
+     * Motif E(pulses, steps) décalé de {@code rotation} steps vers la fin du cycle.
+     * steps est borné à [1, TABLE_MAX_STEPS], pulses à [0, steps].
+     */
+    public static long get(int steps, int pulses, int rotation) {
+        if (steps < 1) steps = 1;
+        if (steps > TABLE_MAX_STEPS) steps = TABLE_MAX_STEPS;
+        if (pulses < 0) pulses = 0;
+        if (pulses > steps) pulses = steps;
+        int rot = ((rotation % steps) + steps) % steps;
+        return TABLE[steps][pulses * steps + rot];
+    }
+
+    /** Nombre de mots de 64 bits pour un motif de {@code steps} steps. */
+    public static int words(int steps) {
+        return (steps + 63) >>> 6;
+    }
+
+    /** Version sans limite de taille (calculée, pas tabulée) : out doit contenir words(steps) mots. */
+    public static void fill(int steps, int pulses, int rotation, long[] out) {
+        boolean[] scratch = new boolean[Math.max(1, steps)];
+        bjorklund(steps, Math.max(0, Math.min(steps, pulses)), scratch);
+        pack(scratch, steps, ((rotation % steps) + steps) % steps, out);
+    }
+
+    public static boolean isSet(long mask, int step) {
+        return ((mask >>> step) & 1L) != 0;
+    }
+
+    private static void pack(boolean[] pattern, int steps, int rot, long[] out) {
+        int nWords = words(steps);
+        for (int w = 0; w < nWords; w++) out[w] = 0L;
+        for (int i = 0; i < steps; i++) {
+            if (!pattern[i]) continue;
+            int j = i + rot;
+            if (j >= steps) j -= steps;
+            out[j >>> 6] |= 1L << (j & 63);
+        }
+    }
+
+    /**
+     * Bjorklund : on répartit les restes de la division euclidienne niveau par
+     * niveau, puis on déroule la hiérarchie. Le motif est ensuite tourné pour
+     * commencer sur une pulsation (convention usuelle, ex. E(3,8) = x..x..x.).
+     */
+    private static void bjorklund(int steps, int pulses, boolean[] out) {
+        if (pulses <= 0 || pulses >= steps) {
+            for (int i = 0; i < steps; i++) out[i] = pulses > 0;
+            return;
+        }
+
+        int[] counts = new int[steps + 1];
+        int[] remainders = new int[steps + 1];
+        int divisor = steps - pulses;
+        remainders[0] = pulses;
+        int level = 0;
+        while (true) {
+            counts[level] = divisor / remainders[level];
+            remainders[level + 1] = divisor % remainders[level];
+            divisor = remainders[level];
+            level++;
+            if (remainders[level] <= 1) break;
+        }
+        counts[level] = divisor;
+
+        int[] cursor = new int[1];
+        build(level, counts, remainders, out, cursor);
+
+        int first = 0;
+        while (!out[first]) first++;
+        if (first > 0) {
+            boolean[] tmp = out.clone();
+            for (int i = 0; i < steps; i++) out[i] = tmp[(i + first) % steps];
+        }
+    }
+
+    private static void build(int level, int[] counts, int[] remainders,
+                              boolean[] out, int[] cursor) {
+        if (level == -1) {
+            out[cursor[0]++] = false;
+        } else if (level == -2) {
+            out[cursor[0]++] = true;
+        } else {
+            for (int i = 0; i < counts[level]; i++) build(level - 1, counts, remainders, out, cursor);
+            if (remainders[level] != 0) build(level - 2, counts, remainders, out, cursor);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.appdummy;
+
+/**
+ * File d'événements datés à la frame près, entre le thread de planification
+ * (producteur : steps calculés en avance) et le thread de rendu (consommateur),
+ * sur un SpscRing.
+ *
+ * Événements rangés en tableaux parallèles, dans l'ordre croissant des frames
+ * (le producteur planifie les steps dans l'ordre).
+ */
+public final class EventRing extends SpscRing {
+
+    public static final int KIND_VOICE  = 0; // voix de synthèse interne
+    public static final int KIND_SAMPLE = 1; // sample d'un slot
+    public static final int KIND_MARK   = 2; // repère de step (pour l'UI), ne joue rien
+    public static final int KIND_BAR    = 3; // début de mesure : samples en attente installés
+
+    private final long[]  frame;
+    private final int[]   kind;
+    private final int[]   voice;
+    private final int[]   slot;
+    private final float[] gain;
+    private final float[] rate;
+    private final long[]  step;
+    private final int[]   fired;
+
+    public EventRing(int capacity) {
+        super(capacity);
+        int c = capacity();
+        frame = new long[c];
+        kind  = new int[c];
+        voice = new int[c];
+        slot  = new int[c];
+        gain  = new float[c];
+        rate  = new float[c];
+        step  = new long[c];
+        fired = new int[c];
+    }
+
+    // --- producteur ---
+
+    public boolean pushVoice(long atFrame, int v, float g) {
+        return push(KIND_VOICE, atFrame, v, 0, g, 1f, 0L, 0);
+    }
+
+    public boolean pushSample(long atFrame, int s, int v, float g, float r) {
+        return push(KIND_SAMPLE, atFrame, v, s, g, r, 0L, 0);
+    }
+
+    public boolean pushMark(long atFrame, long stepIndex, int firedMask) {
+        return push(KIND_MARK, atFrame, 0, 0, 0f, 1f, stepIndex, firedMask);
+    }
+
+    public boolean pushBar(long atFrame) {
+        return push(KIND_BAR, atFrame, 0, 0, 0f, 1f, 0L, 0);
+    }
+
+    private boolean push(int k, long atFrame, int v, int s, float g, float r, long st, int f) {
+        int i = claim();
+        if (i < 0) return false;
+        frame[i] = atFrame;
+        kind[i]  = k;
+        voice[i] = v;
+        slot[i]  = s;
+        gain[i]  = g;
+        rate[i]  = r;
+        step[i]  = st;
+        fired[i] = f;
+        publish(); // publie l'événement
+        return true;
+    }
+
+    // --- consommateur : peek* lisent l'événement en tête, pop le retire ---
+
+    public long peekFrame() { return frame[headIndex()]; }
+    public int peekKind()   { return kind[headIndex()]; }
+    public int peekVoice()  { return voice[headIndex()]; }
+    public int peekSlot()   { return slot[headIndex()]; }
+    public float peekGain() { return gain[headIndex()]; }
+    public float peekRate() { return rate[headIndex()]; }
+    public long peekStep()  { return step[headIndex()]; }
+    public int peekFired()  { return fired[headIndex()]; }
+}
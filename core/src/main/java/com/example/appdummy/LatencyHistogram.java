@@ -0,0 +1,94 @@
+package com.example.appdummy;
+
+/**
+ * Histogramme de durées (ns) à mémoire fixe, façon HDR :
+ * - valeurs exactes en dessous de 2 * SUB_BUCKETS
+ * - au-delà, chaque puissance de deux est coupée en SUB_BUCKETS tranches
+ *   égales => erreur relative <= 1 / SUB_BUCKETS (~3 %) à toute échelle
+ * - valeurs bornées à MAX_VALUE (~18 min), négatives ramenées à 0
+ *
+ * record() n'alloue rien. Un seul thread écrit (thread audio) ; les lectures
+ * depuis un autre thread sont approchées (compteurs non figés ensemble), ce
+ * qui suffit pour de l'affichage et de l'export.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXP = 40;
+    public static final long MAX_VALUE = (1L << (MAX_EXP + 1)) - 1;
+
+    /** Nombre de cases. */
+    public static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private volatile long total = 0;
+    private volatile long max = 0;
+    private long sum = 0;
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        if (value > MAX_VALUE) value = MAX_VALUE;
+        counts[index(value)]++;
+        sum += value;
+        if (value > max) max = value;
+        total = total + 1;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts[i] = 0;
+        sum = 0;
+        max = 0;
+        total = 0;
+    }
+
+    public long getTotalCount() { return total; }
+
+    public long getMax() { return max; }
+
+    public double getMean() {
+        long n = total;
+        return n == 0 ? 0.0 : (double) sum / n;
+    }
+
+    /**
+     * Valeur sous laquelle tombent {@code percentile} % des mesures (borne haute
+     * de la case, plafonnée au maximum observé). 0 si l'histogramme est vide.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long n = total;
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    public long getCount(int bucket) { return counts[bucket]; }
+
+    /** Plus petite valeur rangée dans la case. */
+    public static long lowerBound(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) return bucket;
+        int k = bucket - 2 * SUB_BUCKETS;
+        int shift = k / SUB_BUCKETS + 1;
+        return (long) (SUB_BUCKETS + k % SUB_BUCKETS) << shift;
+    }
+
+    /** Plus grande valeur rangée dans la case. */
+    public static long upperBound(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) return bucket;
+        int shift = (bucket - 2 * SUB_BUCKETS) / SUB_BUCKETS + 1;
+        return lowerBound(bucket) + (1L << shift) - 1;
+    }
+
+    static int index(long value) {
+        if (value < 2 * SUB_BUCKETS) return (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BITS + 1
+        int shift = exp - SUB_BITS;
+        int sub = (int) (value >>> shift) - SUB_BUCKETS;
+        return 2 * SUB_BUCKETS + (shift - 1) * SUB_BUCKETS + sub;
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.appdummy;
+
+import java.util.Arrays;
+
+/**
+ * Mixeur mono à pool de voix préalloué.
+ *
+ * - MAX_VOICES voix jouées à la fois, plus STEAL_RESERVE places où finissent les
+ *   fondus, rangées en tableaux parallèles (aucune allocation au rendu)
+ * - une voix = un buffer float (ou un SampleData hors tas) lu à une vitesse donnée
+ *   (pitch), à partir d'un offset exact dans le bloc
+ * - coups superposés : un nouveau coup ne coupe pas le précédent
+ * - vol de voix : au-delà de MAX_VOICES, la plus ancienne voix jouée part en fondu
+ *   court au moment du coup, et le coup prend une place libre de la réserve ; la
+ *   réserve pleine, il reprend la voix en fondu la plus avancée
+ * - groupes de choke : un coup avec chokes = g coupe (fondu court) les voix du groupe g
+ * - bus de gain : une voix peut porter deux couches (ex. percussion + note) lues en
+ *   parallèle, chacune sur son bus ; le gain des bus est appliqué au mixage et lissé
+ *   (rampe linéaire dans le bloc, approche exponentielle d'un bloc à l'autre)
+ * - sample streamé : la tête est lue en mémoire, la suite dans un anneau du
+ *   SampleStreamer ; sans anneau libre la voix s'arrête à la fin de la tête, et
+ *   sans streamer (rendu hors ligne) la suite est lue directement dans le fichier
+ *
+ * Utilisé uniquement depuis le thread audio.
+ */
+public class Mixer {
+
+    /** Polyphonie : voix jouées à la fois, hors fondus de sortie. */
+    public static final int MAX_VOICES = 16;
+    public static final int MAX_BUSES  = 4;
+
+    /** Bus à gain fixe 1 (samples, etc.). */
+    public static final int BUS_MAIN = 0;
+
+    /** Longueur du fondu appliqué à une voix coupée (choke ou vol). */
+    private static final int FADE_FRAMES = 64;
+
+    /** Places en plus de MAX_VOICES, pour que les voix volées finissent leur fondu. */
+    private static final int STEAL_RESERVE = 4;
+    private static final int POOL = MAX_VOICES + STEAL_RESERVE;
+
+    /** Constante de temps du lissage des gains de bus (~10 ms à 44,1 kHz). */
+    private static final double SMOOTH_FRAMES = 441.0;
+
+    private final float[][] data   = new float[POOL][];
+    private final float[][] data2  = new float[POOL][];
+    private final SampleData[] sdata = new SampleData[POOL]; // si data[v] == null
+    private final int[]     stream = new int[POOL];  // anneau du streamer, -1 = aucun
+    private final int[]     length = new int[POOL];  // frames jouables
+    private final int[]     bus    = new int[POOL];
+    private final int[]     bus2   = new int[POOL];
+    private final double[]  pos    = new double[POOL];
+    private final float[]   rate   = new float[POOL];
+    private final float[]   gain   = new float[POOL];
+    private final int[]     group  = new int[POOL];
+    private final int[]     start  = new int[POOL];  // offset de départ dans le bloc courant
+    private final int[]     fadeAt = new int[POOL];  // offset du début de fondu, -1 = aucun
+    private final float[]   fade   = new float[POOL];
+    private final long[]    age    = new long[POOL];
+    private final boolean[] active = new boolean[POOL];
+
+    private long triggerCount = 0;
+    private SampleStreamer streamer;
+
+    // gains de bus : cible, valeur courante, et rampe du bloc en cours
+    private final float[] busTarget = new float[MAX_BUSES];
+    private final float[] busGain   = new float[MAX_BUSES];
+    private final float[] busStart  = new float[MAX_BUSES];
+    private final float[] busStep   = new float[MAX_BUSES];
+
+    public Mixer() {
+        Arrays.fill(fadeAt, -1);
+        Arrays.fill(stream, -1);
+        Arrays.fill(busTarget, 1f);
+        Arrays.fill(busGain, 1f);
+    }
+
+    /** Fixe la cible de gain d'un bus ; la valeur réelle y glisse sans saut. */
+    public void setBusGain(int b, float target) {
+        busTarget[b] = target;
+    }
+
+    /** Lecture en flux des samples longs ; à fixer avant le premier rendu (null : lecture directe). */
+    public void setStreamer(SampleStreamer s) {
+        streamer = s;
+    }
+
+    /** Place tous les bus directement sur leur cible, sans lissage (avant le premier bloc). */
+    public void snapBusGains() {
+        System.arraycopy(busTarget, 0, busGain, 0, MAX_BUSES);
+    }
+
+    /**
+     * Déclenche une voix.
+     * @param pcm         buffer à jouer (non copié, ne doit plus être modifié)
+     * @param voiceGain   gain linéaire
+     * @param voiceRate   vitesse de lecture (1 = hauteur d'origine)
+     * @param voiceGroup  groupe de la voix (0 = aucun)
+     * @param chokes      groupe coupé par ce coup (0 = aucun)
+     * @param frameOffset position du coup dans le bloc en cours
+     */
+    public void trigger(float[] pcm, float voiceGain, float voiceRate,
+                        int voiceGroup, int chokes, int frameOffset) {
+        trigger(pcm, BUS_MAIN, null, BUS_MAIN, voiceGain, voiceRate, voiceGroup, chokes, frameOffset);
+    }
+
+    /** Déclenche une voix lisant un sample hors tas, sur le bus principal. */
+    public void trigger(SampleData sample, float voiceGain, float voiceRate,
+                        int voiceGroup, int chokes, int frameOffset) {
+        if (sample == null || sample.getFrames() == 0) return;
+        int v = startVoice(BUS_MAIN, BUS_MAIN, voiceGain, voiceRate, voiceGroup, chokes, frameOffset);
+        sdata[v] = sample;
+        length[v] = sample.getFrames();
+        if (sample.isStreamed() && streamer != null) {
+            stream[v] = streamer.open(sample);
+            if (stream[v] < 0) length[v] = sample.getResidentFrames(); // la tête seule
+        }
+    }
+
+    /**
+     * Déclenche une voix à deux couches de même longueur, chacune sur son bus.
+     * {@code layer2} peut être null.
+     */
+    public void trigger(float[] pcm, int pcmBus, float[] layer2, int layer2Bus,
+                        float voiceGain, float voiceRate,
+                        int voiceGroup, int chokes, int frameOffset) {
+        if (pcm == null || pcm.length == 0) return;
+        if (layer2 != null && layer2.length != pcm.length) layer2 = null;
+        int v = startVoice(pcmBus, layer2Bus, voiceGain, voiceRate, voiceGroup, chokes, frameOffset);
+        data[v]  = pcm;
+        data2[v] = layer2;
+        length[v] = pcm.length;
+    }
+
+    private int startVoice(int pcmBus, int layer2Bus, float voiceGain, float voiceRate,
+                           int voiceGroup, int chokes, int frameOffset) {
+        if (frameOffset < 0) frameOffset = 0;
+
+        if (chokes != 0) {
+            for (int v = 0; v < POOL; v++) {
+                if (active[v] && group[v] == chokes) beginFade(v, frameOffset);
+            }
+        }
+
+        int v = findVoice(frameOffset);
+        release(v); // réserve pleine : voix en fondu reprise
+        data[v]   = null;
+        data2[v]  = null;
+        sdata[v]  = null;
+        bus[v]    = pcmBus;
+        bus2[v]   = layer2Bus;
+        pos[v]    = 0.0;
+        rate[v]   = voiceRate > 0f ? voiceRate : 1f;
+        gain[v]   = voiceGain;
+        group[v]  = voiceGroup;
+        start[v]  = frameOffset;
+        fadeAt[v] = -1;
+        fade[v]   = 1f;
+        age[v]    = ++triggerCount;
+        active[v] = true;
+        return v;
+    }
+
+    /** Coupe toutes les voix (fondu court). */
+    public void stopAll() {
+        for (int v = 0; v < POOL; v++) {
+            if (active[v]) beginFade(v, 0);
+        }
+    }
+
+    public int getActiveVoiceCount() {
+        int n = 0;
+        for (int v = 0; v < POOL; v++) if (active[v]) n++;
+        return n;
+    }
+
+    /** Mixe {@code frames} frames dans out (écrasé). */
+    public void render(float[] out, int frames) {
+        Arrays.fill(out, 0, frames, 0f);
+        if (frames <= 0) return;
+
+        double coef = 1.0 - Math.exp(-frames / SMOOTH_FRAMES);
+        for (int b = 0; b < MAX_BUSES; b++) {
+            float from = busGain[b];
+            float to = busTarget[b];
+            if (Math.abs(to - from) > 1e-4f) to = (float) (from + (to - from) * coef);
+            busStart[b] = from;
+            busStep[b]  = (to - from) / frames;
+            busGain[b]  = to;
+        }
+
+        for (int v = 0; v < POOL; v++) {
+            if (!active[v]) continue;
+
+            float[] src = data[v];
+            float[] src2 = data2[v];
+            SampleData sd = sdata[v];
+            int len = length[v];
+            int head = sd != null ? sd.getResidentFrames() : len;
+            int ring = stream[v];
+            float ga = busStart[bus[v]],  gaStep = busStep[bus[v]];
+            float gb = busStart[bus2[v]], gbStep = busStep[bus2[v]];
+            double p = pos[v];
+            float r = rate[v];
+            float g = gain[v];
+            int fAt = fadeAt[v];
+            float f = fade[v];
+            final float fadeStep = 1f / FADE_FRAMES;
+
+            int i = start[v];
+            for (; i < frames; i++) {
+                int idx = (int) p;
+                if (idx >= len) break;
+
+                float s;
+                float s2 = 0f;
+                if (r == 1f) {
+                    s = src != null ? src[idx] : fetch(sd, head, ring, idx);
+                    if (src2 != null) s2 = src2[idx];
+                } else {
+                    float frac = (float) (p - idx);
+                    float cur = src != null ? src[idx] : fetch(sd, head, ring, idx);
+                    float next = (idx + 1 >= len) ? 0f : (src != null ? src[idx + 1] : fetch(sd, head, ring, idx + 1));
+                    s = cur + (next - cur) * frac;
+                    if (src2 != null) {
+                        float next2 = (idx + 1 < len) ? src2[idx + 1] : 0f;
+                        s2 = src2[idx] + (next2 - src2[idx]) * frac;
+                    }
+                }
+                s = s * (ga + gaStep * i) + s2 * (gb + gbStep * i);
+
+                if (fAt >= 0 && i >= fAt) {
+                    f -= fadeStep;
+                    if (f <= 0f) { f = 0f; break; }
+                }
+
+                out[i] += s * g * f;
+                p += r;
+            }
+
+            if ((int) p >= len || f <= 0f) {
+                active[v] = false;
+                release(v);
+                data[v] = null;
+                data2[v] = null;
+                sdata[v] = null;
+            } else {
+                if (ring >= 0) streamer.consumed(ring, (int) p);
+                pos[v] = p;
+                start[v] = 0;
+                fade[v] = f;
+                if (fAt >= 0) fadeAt[v] = 0;
+            }
+        }
+    }
+
+    private float fetch(SampleData sd, int head, int ring, int idx) {
+        return (idx < head || ring < 0) ? sd.get(idx) : streamer.read(ring, idx);
+    }
+
+    /** Rend l'anneau de streaming de la voix. */
+    private void release(int v) {
+        if (stream[v] >= 0) {
+            streamer.close(stream[v]);
+            stream[v] = -1;
+        }
+    }
+
+    private void beginFade(int v, int offset) {
+        if (fadeAt[v] < 0 || fadeAt[v] > offset) fadeAt[v] = offset;
+    }
+
+    /** Place pour un coup à {@code offset} : vole au besoin la plus ancienne voix jouée. */
+    private int findVoice(int offset) {
+        int playing = 0;
+        int oldest = -1;
+        for (int v = 0; v < POOL; v++) {
+            if (!active[v] || fadeAt[v] >= 0) continue;
+            playing++;
+            if (oldest < 0 || age[v] < age[oldest]) oldest = v;
+        }
+        if (playing >= MAX_VOICES) beginFade(oldest, offset);
+
+        int free = -1;
+        int fading = -1;
+        for (int v = 0; v < POOL; v++) {
+            if (!active[v]) {
+                free = v;
+                break;
+            }
+            // réserve pleine : la voix dont le fondu est le plus avancé, puis la plus ancienne
+            if (fadeAt[v] >= 0 && (fading < 0 || fade[v] < fade[fading]
+                    || (fade[v] == fade[fading] && age[v] < age[fading]))) fading = v;
+        }
+        return free >= 0 ? free : fading;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.appdummy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Rendu hors ligne d'un motif, plus vite que le temps réel.
+ *
+ * Même chaîne que le jeu en direct (StepClock -> Sequencer -> AudioGraph), mais
+ * sans AudioTrack ni thread : un seul thread avance l'horloge puis rend le bloc,
+ * sans attendre. Le résultat part dans un AudioSink (ex. WavWriter).
+ *
+ * Une mesure = un tour de la piste 0. Après la dernière mesure, on laisse sonner
+ * les voix jusqu'à leur fin (queue bornée à MAX_TAIL_SECONDS).
+ */
+public class OfflineRenderer {
+
+    private static final int BLOCK_FRAMES = 256;
+    private static final double MAX_TAIL_SECONDS = 2.0;
+
+    private final int sampleRate;
+    private final AudioGraph graph;
+    private final StepClock clock;
+    private final Sequencer sequencer;
+    private final Random random = new Random(0);
+    private PatternSnapshot snapshot;
+
+    public OfflineRenderer(int sampleRateHz) {
+        this.sampleRate = sampleRateHz;
+        this.graph = new AudioGraph(sampleRateHz);
+        this.clock = new StepClock(sampleRateHz, 0.5);
+        this.sequencer = new Sequencer(graph, new Sequencer.SnapshotSource() {
+            @Override public PatternSnapshot getSnapshot() { return snapshot; }
+        }, random);
+    }
+
+    public int getSampleRate() { return sampleRate; }
+
+    /** Voix, samples et gains du rendu. */
+    public AudioGraph getGraph() { return graph; }
+
+    public Sequencer getSequencer() { return sequencer; }
+
+    /** Glitch reproductible : même graine => même fichier. */
+    public void setGlitch(double level, long seed) {
+        sequencer.setGlitchLevel(level);
+        random.setSeed(seed);
+    }
+
+    /**
+     * Rend {@code bars} tours de la piste 0 dans sink.
+     * @return nombre de frames écrites (queue comprise)
+     */
+    public long render(PatternSnapshot snap, double secondsPerStep, int bars, AudioSink sink)
+            throws IOException {
+        snapshot = snap;
+        graph.clearEvents();
+        clock.setSecondsPerStep(secondsPerStep);
+        clock.startNow();
+
+        double framesPerStep = secondsPerStep * sampleRate;
+        long endFrame = (long) Math.ceil(Math.max(0, bars) * snap.steps * framesPerStep);
+        long maxFrame = endFrame + (long) (MAX_TAIL_SECONDS * sampleRate);
+
+        float[] block = new float[BLOCK_FRAMES];
+        long start = clock.getFramePosition();
+        long pos = 0;
+        while (pos < maxFrame) {
+            int n = BLOCK_FRAMES;
+            if (pos < endFrame) {
+                n = (int) Math.min(n, endFrame - pos);
+            } else if (graph.getActiveVoiceCount() == 0) {
+                break; // fin du motif et plus rien ne sonne
+            }
+            graph.setScheduleBase(start + pos);
+            clock.advance(n, pos < endFrame ? sequencer : null);
+            graph.render(block, start + pos, n);
+            sink.write(block, 0, n);
+            pos += n;
+        }
+        clock.stop();
+        return pos;
+    }
+
+    /**
+     * Rendu en ligne de commande, motif par défaut (4 pistes de 16 steps) :
+     *   OfflineRenderer out.wav [mesures] [bpm] [sampleRate]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: OfflineRenderer out.wav [bars] [bpm] [sampleRate]");
+            return;
+        }
+        int bars = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        double bpm = args.length > 2 ? Double.parseDouble(args[2]) : 120.0;
+        int rate = args.length > 3 ? Integer.parseInt(args[3]) : 44_100;
+
+        TrackModel m = new TrackModel();
+        m.add(16, 16, AudioGraph.VOICE_KICK);
+        m.add(16, 5, AudioGraph.VOICE_SNARE);
+        m.add(16, 3, AudioGraph.VOICE_HAT_OPEN);
+        m.add(16, 7, AudioGraph.VOICE_HAT_CLOSED);
+
+        OfflineRenderer r = new OfflineRenderer(rate);
+        WavWriter out = new WavWriter(new File(args[0]), rate, 1, false);
+        long t0 = System.nanoTime();
+        long frames;
+        try {
+            frames = r.render(PatternSnapshot.of(m), 60.0 / bpm, bars, out);
+        } finally {
+            out.close();
+        }
+        double secs = (System.nanoTime() - t0) / 1e9;
+        double audio = frames / (double) rate;
+        System.out.printf("%s : %.2f s audio en %.3f s (x%.0f temps réel)%n",
+                args[0], audio, secs, audio / Math.max(secs, 1e-9));
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.appdummy;
+
+/**
+ * État complet des pistes à un instant donné, immuable :
+ * - motif de chaque piste (masque de bits)
+ * - points actifs/inactifs (masque de bits)
+ * - pistes muettes, voix et gain de chaque piste
+ *
+ * Chaque piste a sa propre longueur (polymétrie) : le step local d'une piste est
+ * le step maître modulo steps(t).
+ *
+ * L'UI construit un nouveau snapshot à chaque modification et le publie par une
+ * seule référence atomique ; le thread audio (TrackScheduler) lit les masques
+ * sans verrou ni allocation.
+ */
+public final class PatternSnapshot {
+
+    /** Steps de la piste 0 (l'anneau bleu, qui porte l'aiguille). */
+    public final int steps;
+    public final int trackCount;
+
+    private final int[] trackSteps;
+    private final long[] pattern;
+    private final long[] active;
+    private final int muteMask;
+    private final int[] voice;
+    private final float[] gain;
+
+    // pattern & active, sans les pistes muettes : ce que le son lit
+    private final long[] fire;
+
+    private PatternSnapshot(int[] trackSteps, long[] pattern, long[] active, int muteMask,
+                            int[] voice, float[] gain) {
+        this.trackCount = trackSteps.length;
+        this.steps = trackCount > 0 ? trackSteps[0] : 1;
+        this.trackSteps = trackSteps;
+        this.pattern = pattern;
+        this.active = active;
+        this.muteMask = muteMask;
+        this.voice = voice;
+        this.gain = gain;
+        this.fire = new long[trackCount];
+        for (int t = 0; t < trackCount; t++) {
+            fire[t] = ((muteMask >>> t) & 1) != 0 ? 0L : (pattern[t] & active[t]);
+        }
+    }
+
+    /** Snapshot du modèle, tous les points actifs. */
+    public static PatternSnapshot of(TrackModel m) {
+        int n = m.count;
+        int[] st = new int[n];
+        long[] p = new long[n];
+        long[] a = new long[n];
+        for (int t = 0; t < n; t++) {
+            st[t] = Math.max(1, Math.min(64, m.steps[t]));
+            p[t] = m.pattern(t) & fullMask(st[t]);
+            a[t] = fullMask(st[t]);
+        }
+        return new PatternSnapshot(st, p, a, muteMaskOf(m), voicesOf(m), gainsOf(m));
+    }
+
+    public static long fullMask(int steps) {
+        return (steps >= 64) ? -1L : (1L << steps) - 1L;
+    }
+
+    public int steps(int track) { return trackSteps[track]; }
+
+    public long pattern(int track) { return pattern[track]; }
+
+    public int voice(int track) { return voice[track]; }
+
+    public float gain(int track) { return gain[track]; }
+
+    public boolean isPulse(int track, int step) {
+        return step >= 0 && step < trackSteps[track] && ((pattern[track] >>> step) & 1L) != 0;
+    }
+
+    public boolean isActive(int track, int step) {
+        return step >= 0 && step < trackSteps[track] && ((active[track] >>> step) & 1L) != 0;
+    }
+
+    public boolean isMuted(int track) {
+        return ((muteMask >>> track) & 1) != 0;
+    }
+
+    public boolean fires(int track, int step) {
+        return step >= 0 && step < trackSteps[track] && ((fire[track] >>> step) & 1L) != 0;
+    }
+
+    /** Steps où la piste joue réellement (motif, points actifs, hors mute). */
+    public long fireMask(int track) {
+        return fire[track];
+    }
+
+    // --- copies modifiées (thread UI) ---
+
+    /** Reprend voix, gains et mutes du modèle sans toucher aux motifs ni aux points actifs. */
+    public PatternSnapshot withParams(TrackModel m) {
+        if (m.count != trackCount) return of(m);
+        return new PatternSnapshot(trackSteps, pattern, active, muteMaskOf(m), voicesOf(m), gainsOf(m));
+    }
+
+    public PatternSnapshot withAllActive() {
+        long[] a = new long[trackCount];
+        for (int t = 0; t < trackCount; t++) a[t] = fullMask(trackSteps[t]);
+        return new PatternSnapshot(trackSteps, pattern, a, muteMask, voice, gain);
+    }
+
+    public PatternSnapshot withToggled(int track, int step) {
+        long[] a = active.clone();
+        a[track] ^= 1L << step;
+        return new PatternSnapshot(trackSteps, pattern, a, muteMask, voice, gain);
+    }
+
+    /** Seule la piste {@code track} joue (export en stems) ; son propre mute est conservé. */
+    public PatternSnapshot withSolo(int track) {
+        return new PatternSnapshot(trackSteps, pattern, active, muteMask | ~(1 << track), voice, gain);
+    }
+
+    private static int muteMaskOf(TrackModel m) {
+        int mask = 0;
+        for (int t = 0; t < m.count; t++) if (m.mute[t]) mask |= 1 << t;
+        return mask;
+    }
+
+    private static int[] voicesOf(TrackModel m) {
+        int[] v = new int[m.count];
+        System.arraycopy(m.voice, 0, v, 0, m.count);
+        return v;
+    }
+
+    private static float[] gainsOf(TrackModel m) {
+        float[] g = new float[m.count];
+        System.arraycopy(m.gain, 0, g, 0, m.count);
+        return g;
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.appdummy;
+
+/**
+ * Position d'écoute partagée entre le thread de rendu (écrivain) et l'UI (lectrice),
+ * sans verrou ni allocation :
+ *
+ * - repères de steps : (step, frame, pistes jouées) de chaque step rendu, dans un
+ *   petit anneau ; la frame est celle où le step commence dans le flux de sortie
+ * - horodatage de sortie : la frame présentée au haut-parleur à un instant
+ *   System.nanoTime (AudioTrack.getTimestamp, ou estimation d'après le tampon)
+ *
+ * locate(t) en déduit la frame entendue à l'instant t, puis le step entendu et la
+ * fraction déjà écoulée de ce step : l'affichage suit ce qu'on entend, latence de
+ * sortie comprise, au lieu de ce qui vient d'être rendu.
+ *
+ * drain(frame) parcourt le même anneau avec un curseur de lecture (un seul
+ * lecteur, l'UI) : les steps devenus audibles depuis l'appel précédent sont
+ * fusionnés en une notification. Si l'UI prend trop de retard, les plus anciens
+ * sont recouverts et sautés.
+ */
+public final class Playhead {
+
+    private static final int SIZE = 64;
+    private static final int MASK = SIZE - 1;
+    // l'écrivain peut recouvrir les plus anciens pendant une lecture : on n'en lit que la moitié
+    private static final int READ_DEPTH = SIZE / 2;
+
+    /** Résultat de drain (réutilisable, pas d'allocation par frame). */
+    public static final class Batch {
+        /** Nombre de steps fusionnés ; 0 = rien de neuf. */
+        public int count;
+        /** Dernier step retiré. */
+        public long step;
+        /** OU des pistes jouées sur tous les steps retirés. */
+        public int firedMask;
+    }
+
+    /** Résultat de locate (réutilisable, pas d'allocation par frame). */
+    public static final class Position {
+        public long step;
+        public float fraction;
+        public int firedMask;
+    }
+
+    private final double framesPerNano;
+
+    // anneau de repères (écrit par le thread de rendu)
+    private final long[] markStep = new long[SIZE];
+    private final long[] markFrame = new long[SIZE];
+    private final int[] markFired = new int[SIZE];
+    private volatile long markCount = 0;
+    private long drained = 0; // curseur de drain (UI)
+
+    // horodatage de sortie, publié en seqlock (impair = écriture en cours)
+    private volatile int tsSeq = 0;
+    private volatile long tsFrame;
+    private volatile long tsNanos;
+
+    public Playhead(int sampleRate) {
+        this.framesPerNano = sampleRate / 1e9;
+    }
+
+    // --- thread de rendu ---
+
+    /** Le step {@code step} commence à la frame {@code frame} du flux de sortie. */
+    public void mark(long step, long frame, int firedMask) {
+        long n = markCount;
+        int i = (int) (n & MASK);
+        markStep[i] = step;
+        markFrame[i] = frame;
+        markFired[i] = firedMask;
+        markCount = n + 1;
+    }
+
+    /** La frame {@code frame} est (ou sera) présentée à l'instant {@code nanoTime}. */
+    public void setTimestamp(long frame, long nanoTime) {
+        int s = tsSeq;
+        tsSeq = s + 1;
+        tsFrame = frame;
+        tsNanos = nanoTime;
+        tsSeq = s + 2;
+    }
+
+    // --- UI ---
+
+    /** Frame entendue à l'instant nanoTime ; -1 tant qu'aucun horodatage n'est publié. */
+    public long heardFrame(long nanoTime) {
+        long frame, nanos;
+        int s;
+        do {
+            s = tsSeq;
+            frame = tsFrame;
+            nanos = tsNanos;
+        } while ((s & 1) != 0 || s != tsSeq);
+        if (s == 0) return -1;
+        return frame + (long) ((nanoTime - nanos) * framesPerNano);
+    }
+
+    /**
+     * Retire les steps dont la frame est {@code <= uptoFrame} (dans l'ordre) depuis
+     * le drain précédent et les fusionne dans {@code out}.
+     * @return nombre de steps retirés
+     */
+    public int drain(long uptoFrame, Batch out) {
+        long count = markCount;
+        long k = Math.max(drained, count - READ_DEPTH); // plus anciens : recouverts
+        int n = 0;
+        int firedMask = 0;
+        long last = out.step;
+        for (; k < count; k++) {
+            int i = (int) (k & MASK);
+            if (markFrame[i] > uptoFrame) break;
+            last = markStep[i];
+            firedMask |= markFired[i];
+            n++;
+        }
+        drained = k;
+        out.count = n;
+        out.step = last;
+        out.firedMask = firedMask;
+        return n;
+    }
+
+    /** Oublie les steps pas encore retirés par drain (ex. reprise après une pause). */
+    public void skipPending() {
+        drained = markCount;
+    }
+
+    /**
+     * Step entendu à l'instant nanoTime.
+     * @return false si rien n'est encore entendu (pas d'horodatage ou de repère)
+     */
+    public boolean locate(long nanoTime, Position out) {
+        long heard = heardFrame(nanoTime);
+        if (heard < 0) return false;
+
+        long count = markCount;
+        long oldest = Math.max(0, count - READ_DEPTH);
+        for (long k = count - 1; k >= oldest; k--) {
+            int i = (int) (k & MASK);
+            long frame = markFrame[i];
+            if (frame > heard) continue;
+
+            long step = markStep[i];
+            long span = 0;
+            if (k + 1 < count) {
+                int j = (int) ((k + 1) & MASK);
+                if (markStep[j] == step + 1) span = markFrame[j] - frame;
+            }
+            boolean known = span > 0;
+            if (!known && k > oldest) {
+                // step suivant pas encore rendu : durée du step précédent
+                int j = (int) ((k - 1) & MASK);
+                if (markStep[j] == step - 1) span = frame - markFrame[j];
+            }
+
+            float fraction = 0f;
+            if (span > 0) {
+                fraction = (float) (heard - frame) / span;
+                if (fraction >= 1f) fraction = known ? 0.999f : 0f; // pas de suite : horloge arrêtée
+            }
+            out.step = step;
+            out.fraction = fraction;
+            out.firedMask = markFired[i];
+            return true;
+        }
+        return false;
+    }
+}
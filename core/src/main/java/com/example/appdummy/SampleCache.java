@@ -0,0 +1,215 @@
+package com.example.appdummy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache disque des samples déjà décodés et rééchantillonnés, pour ne pas refaire
+ * le travail de WavReader à chaque lancement.
+ *
+ * - une entrée par clé (URI + taille + date de modification, par ex.), à une fréquence,
+ *   dans un fichier nommé d'après le SHA-1 de la clé
+ * - format brut projetable : en-tête de 16 octets (magic, version, fréquence,
+ *   frames) puis les floats little-endian ; relire = projeter le fichier, sans
+ *   décodage ni copie sur le tas (SampleData les copie hors tas par fragments)
+ * - taille totale plafonnée : les entrées les moins récemment lues sont supprimées
+ *   (date de modification du fichier = dernier accès)
+ * - compteurs hits / misses / évictions pour le diagnostic
+ *
+ * Appelé depuis les threads de chargement, jamais depuis le rendu.
+ */
+public final class SampleCache {
+
+    private static final int MAGIC = 0x4D435053; // "SPCM"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final String SUFFIX = ".pcm";
+    private static final int CHUNK_FRAMES = 16 * 1024;
+
+    private final File dir;
+    private final long maxBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile long sizeBytes = -1;
+
+    public SampleCache(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return le sample en cache pour cette clé et cette fréquence, lu dans le
+     *         fichier projeté ; null sinon (miss)
+     *
+     * Sans verrou, pour que plusieurs chargements lisent en parallèle : put remplace
+     * une entrée par renommage atomique, et une entrée supprimée pendant la lecture
+     * reste lisible par sa projection (au pire, un miss). Seule une entrée invalide
+     * est supprimée ; une erreur d'E/S passagère n'est qu'un miss.
+     */
+    public SampleData.Source get(String key, int sampleRate) {
+        File f = fileFor(key);
+        if (!f.isFile()) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            long size = ch.size();
+            ByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            int frames = size >= HEADER_BYTES ? b.getInt(12) : -1;
+            if (size < HEADER_BYTES || b.getInt(0) != MAGIC || b.getInt(4) != VERSION
+                    || size != HEADER_BYTES + 4L * frames) {
+                remove(f); // corrompue : à refaire
+                misses.incrementAndGet();
+                return null;
+            }
+            if (b.getInt(8) != sampleRate) { // autre fréquence : l'entrée reste valable pour elle
+                misses.incrementAndGet();
+                return null;
+            }
+            b.position(HEADER_BYTES);
+            FloatBuffer pcm = b.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            f.setLastModified(System.currentTimeMillis()); // LRU
+            hits.incrementAndGet();
+            return SampleData.wrap(pcm);
+        } catch (IOException e) {
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Enregistre un sample décodé, lu par fragments depuis la source, puis fait de
+     * la place si le plafond est dépassé.
+     * @return l'entrée écrite, projetée comme par get (la lire ne redécode pas la
+     *         source) ; null si elle ne tiendrait pas dans le cache
+     */
+    public synchronized SampleData.Source put(String key, int sampleRate, SampleData.Source pcm)
+            throws IOException {
+        int frames = pcm.getFrames();
+        long bytes = HEADER_BYTES + 4L * frames;
+        if (bytes > maxBytes) return null; // inutile de vider le cache pour lui
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("dossier " + dir);
+
+        File f = fileFor(key);
+        File tmp = new File(dir, f.getName() + ".tmp");
+        FloatBuffer written;
+        try (FileChannel ch = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocateDirect(4 * CHUNK_FRAMES).order(ByteOrder.LITTLE_ENDIAN);
+            b.putInt(MAGIC).putInt(VERSION).putInt(sampleRate).putInt(frames).flip();
+            while (b.hasRemaining()) ch.write(b);
+            float[] chunk = new float[CHUNK_FRAMES];
+            b.clear();
+            FloatBuffer fb = b.asFloatBuffer();
+            for (int i = 0; i < frames; i += CHUNK_FRAMES) {
+                int k = Math.min(CHUNK_FRAMES, frames - i);
+                pcm.read(i, chunk, 0, k);
+                fb.clear();
+                fb.put(chunk, 0, k); // vue : ne déplace pas la position de b
+                b.clear().limit(4 * k);
+                while (b.hasRemaining()) ch.write(b);
+            }
+            // la projection survit au renommage, comme à une éviction
+            written = ch.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, 4L * frames)
+                    .order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        }
+        // entrée complète ou absente, jamais à moitié écrite ; l'ancienne reste lisible jusqu'au remplacement
+        try {
+            Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            remove(tmp);
+            throw e;
+        }
+        trim();
+        return SampleData.wrap(written);
+    }
+
+    /** Supprime les entrées les moins récemment lues jusqu'à repasser sous le plafond. */
+    public synchronized void trim() {
+        File[] files = entries();
+        long total = 0;
+        for (File f : files) total += f.length();
+        if (total > maxBytes) {
+            // dates relevées une fois : un get concurrent les change pendant le tri
+            final long[] used = new long[files.length];
+            Integer[] order = new Integer[files.length];
+            for (int i = 0; i < files.length; i++) {
+                used[i] = files[i].lastModified();
+                order[i] = i;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override public int compare(Integer a, Integer b) {
+                    return Long.compare(used[a], used[b]);
+                }
+            });
+            for (int i = 0; i < order.length && total > maxBytes; i++) {
+                File victim = files[order[i]];
+                long len = victim.length();
+                if (remove(victim)) {
+                    total -= len;
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+        sizeBytes = total;
+    }
+
+    public synchronized void clear() {
+        for (File f : entries()) remove(f);
+        sizeBytes = 0;
+    }
+
+    public long getHits() { return hits.get(); }
+
+    public long getMisses() { return misses.get(); }
+
+    public long getEvictions() { return evictions.get(); }
+
+    /** Taille occupée sur disque (octets), connue après le premier put ou trim ; -1 avant. */
+    public long getSizeBytes() { return sizeBytes; }
+
+    public long getMaxBytes() { return maxBytes; }
+
+    private File[] entries() {
+        File[] files = dir.listFiles();
+        if (files == null) return new File[0];
+        int n = 0;
+        for (File f : files) if (f.getName().endsWith(SUFFIX)) files[n++] = f;
+        return Arrays.copyOf(files, n);
+    }
+
+    private File fileFor(String key) {
+        return new File(dir, sha1(key) + SUFFIX);
+    }
+
+    private static boolean remove(File f) {
+        return f.delete() || !f.exists();
+    }
+
+    private static String sha1(String key) {
+        try {
+            byte[] h = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(2 * h.length);
+            for (byte x : h) sb.append(Character.forDigit((x >> 4) & 0xF, 16)).append(Character.forDigit(x & 0xF, 16));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-1 est toujours présent
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.appdummy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * PCM mono d'un sample, hors du tas Java (ByteBuffer direct) : le GC ne le
+ * parcourt ni ne le déplace, et sa taille est comptée exactement.
+ *
+ * Deux encodages : float 32 bits, ou 16 bits (compact, moitié moins de mémoire,
+ * quantifié au chargement). Immuable une fois construit : lisible par le thread
+ * de rendu sans précaution.
+ *
+ * Sample long (streamed) : seule la tête (getResidentFrames) est en mémoire ; la
+ * suite est dans un fichier float projeté, lu par un SampleStreamer (thread d'E/S)
+ * pour le rendu temps réel, ou directement par get() hors ligne.
+ */
+public final class SampleData {
+
+    private static final float SHORT_SCALE = 1f / 32768f;
+
+    private final FloatBuffer floats; // null si compact
+    private final ShortBuffer shorts; // null sinon
+    private final int resident;       // frames de la tête en mémoire
+    private final FloatBuffer tail;   // suite projetée depuis le disque, null si tout est résident
+    private final int frames;
+
+    private SampleData(FloatBuffer floats, ShortBuffer shorts, int resident, FloatBuffer tail, int frames) {
+        this.floats = floats;
+        this.shorts = shorts;
+        this.resident = resident;
+        this.tail = tail;
+        this.frames = frames;
+    }
+
+    /** PCM mono lu par fragments (décodeur WAV, cache disque, tableau). */
+    public interface Source {
+        int getFrames();
+        /** Copie les frames [from, from + n) dans dst à partir de offset. */
+        void read(int from, float[] dst, int offset, int n);
+    }
+
+    /** Fragment de copie : seul tampon sur le tas pendant la construction. */
+    private static final int CHUNK_FRAMES = 16 * 1024;
+
+    /** Source sur un tableau (non copié). */
+    public static Source wrap(final float[] pcm) {
+        return new Source() {
+            @Override public int getFrames() { return pcm.length; }
+            @Override public void read(int from, float[] dst, int offset, int n) {
+                System.arraycopy(pcm, from, dst, offset, n);
+            }
+        };
+    }
+
+    /** Source sur un buffer (ex. fichier projeté), lue sans copie sur le tas. */
+    public static Source wrap(final FloatBuffer pcm) {
+        return new Source() {
+            @Override public int getFrames() { return pcm.limit(); }
+            @Override public void read(int from, float[] dst, int offset, int n) {
+                FloatBuffer b = pcm.duplicate();
+                b.position(from);
+                b.get(dst, offset, n);
+            }
+        };
+    }
+
+    /** Copie {@code pcm} hors tas, en 16 bits si {@code compact}. */
+    public static SampleData of(float[] pcm, boolean compact) {
+        return of(wrap(pcm), compact);
+    }
+
+    /** Copie la source hors tas par fragments, en 16 bits si {@code compact}. */
+    public static SampleData of(Source src, boolean compact) {
+        float[] chunk = new float[CHUNK_FRAMES];
+        return head(src, src.getFrames(), compact, null, chunk);
+    }
+
+    /**
+     * Garde en mémoire les {@code headFrames} premières frames et écrit la suite
+     * dans {@code file}, par fragments, puis la projette en lecture. Le fichier est
+     * supprimé aussitôt projeté : la projection reste valide et l'espace disque est
+     * rendu quand elle est libérée (aucun fichier orphelin après un arrêt brutal).
+     */
+    public static SampleData streamed(Source src, int headFrames, File file, boolean compact)
+            throws IOException {
+        int total = src.getFrames();
+        int head = Math.max(0, Math.min(headFrames, total));
+        if (head == total) return of(src, compact);
+        int n = total - head;
+        float[] chunk = new float[CHUNK_FRAMES];
+        FloatBuffer tail;
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocateDirect(4 * CHUNK_FRAMES).order(ByteOrder.LITTLE_ENDIAN);
+            FloatBuffer f = b.asFloatBuffer();
+            for (int i = 0; i < n; i += CHUNK_FRAMES) {
+                int k = Math.min(CHUNK_FRAMES, n - i);
+                src.read(head + i, chunk, 0, k);
+                f.clear();
+                f.put(chunk, 0, k);
+                b.clear().limit(4 * k);
+                while (b.hasRemaining()) ch.write(b);
+            }
+            tail = ch.map(FileChannel.MapMode.READ_ONLY, 0, 4L * n)
+                    .order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        } finally {
+            file.delete();
+        }
+        return head(src, head, compact, tail, chunk);
+    }
+
+    private static SampleData head(Source src, int n, boolean compact, FloatBuffer tail, float[] chunk) {
+        int total = src.getFrames();
+        if (!compact) {
+            FloatBuffer f = ByteBuffer.allocateDirect(4 * n).order(ByteOrder.nativeOrder()).asFloatBuffer();
+            for (int i = 0; i < n; i += chunk.length) {
+                int k = Math.min(chunk.length, n - i);
+                src.read(i, chunk, 0, k);
+                f.put(chunk, 0, k);
+            }
+            return new SampleData(f, null, n, tail, total);
+        }
+        ShortBuffer s = ByteBuffer.allocateDirect(2 * n).order(ByteOrder.nativeOrder()).asShortBuffer();
+        for (int i = 0; i < n; i += chunk.length) {
+            int k = Math.min(chunk.length, n - i);
+            src.read(i, chunk, 0, k);
+            for (int j = 0; j < k; j++) {
+                float x = chunk[j] * 32768f;
+                s.put(i + j, (short) Math.max(-32768f, Math.min(32767f, Math.round(x))));
+            }
+        }
+        return new SampleData(null, s, n, tail, total);
+    }
+
+    public int getFrames() { return frames; }
+
+    /** Frames en mémoire (la tête) ; égal à getFrames() sauf pour un sample streamé. */
+    public int getResidentFrames() { return resident; }
+
+    public boolean isStreamed() { return tail != null; }
+
+    public boolean isCompact() { return shorts != null; }
+
+    /** Mémoire occupée hors tas, en octets (la tête seule pour un sample streamé). */
+    public long getSizeBytes() {
+        return (long) resident * (shorts != null ? 2 : 4);
+    }
+
+    /**
+     * Échantillon {@code i} (0 <= i < frames), dans [-1, 1]. Au-delà de la tête,
+     * lecture du fichier projeté : peut attendre le disque, pas pour le rendu temps réel.
+     */
+    public float get(int i) {
+        if (i >= resident) return tail.get(i - resident);
+        return shorts != null ? shorts.get(i) * SHORT_SCALE : floats.get(i);
+    }
+
+    /** Copie les frames [from, from + n) de la suite (from >= getResidentFrames()) dans dst. */
+    void readTail(int from, float[] dst, int offset, int n) {
+        FloatBuffer t = tail.duplicate();
+        t.position(from - resident);
+        t.get(dst, offset, n);
+    }
+
+    /** Copie vers un tableau float (export, tests). */
+    public float[] toArray() {
+        float[] out = new float[frames];
+        for (int i = 0; i < frames; i++) out[i] = get(i);
+        return out;
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.appdummy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Chargement et mémoire des samples des slots, hors du thread UI :
+ * - le décodage (WavReader) et la copie hors tas (SampleData, 16 bits si compact)
+ *   tournent sur un pool borné (2 à MAX_LOADERS threads selon les cœurs) : les slots se
+ *   chargent en parallèle, sans qu'une restauration de dix samples ne sature le
+ *   disque et les cœurs ; la source est lue par fragments, jamais entière sur le tas
+ * - le sample prêt est confié à l'AudioGraph par le thread « éditeur » (l'UI,
+ *   seul producteur des commandes du graphe), via {@code publisher}, et ne
+ *   remplace l'ancien son qu'au début de mesure suivant (AudioGraph.stageSample)
+ * - chaque slot a un état (EMPTY, LOADING, READY, FAILED, EVICTED) et un futur
+ *   terminé une fois le sample installé, ou en erreur
+ *
+ * Budget mémoire : au-delà de budgetBytes, les slots non épinglés les moins
+ * récemment joués (AudioGraph.getLastTriggerFrame) sont retirés du graphe
+ * (EVICTED). Un slot épinglé n'est jamais évincé, quitte à dépasser le budget.
+ * Quand le séquenceur réclame un slot évincé (AudioGraph.requestSample), maintain()
+ * le recharge en arrière-plan avec son dernier Decoder.
+ *
+ * Streaming : un sample de plus de streamThreshold frames ne garde en mémoire
+ * que sa tête (streamHead frames, comptées dans le budget) ; la suite est écrite
+ * dans streamDir et lue en flux pendant le jeu (SampleStreamer).
+ *
+ * Tant qu'un slot n'est pas READY le séquenceur joue la voix de synthèse de la
+ * piste : un coup n'est jamais perdu en silence. Un chargement remplacé par un
+ * autre (ou par clear) avant la fin est abandonné.
+ *
+ * load / clear / setPinned / maintain : depuis le thread éditeur. Les états se
+ * lisent de partout.
+ */
+public final class SampleStore {
+
+    public static final int EMPTY   = 0;
+    public static final int LOADING = 1;
+    public static final int READY   = 2;
+    public static final int FAILED  = 3;
+    public static final int EVICTED = 4;
+
+    /** Threads de chargement au plus : chacun lit un fichier et écrit son sample en parallèle. */
+    public static final int MAX_LOADERS = 4;
+
+    /**
+     * Ouvre le PCM mono, à la fréquence donnée (thread de chargement). La source
+     * est lue par fragments : un sample long n'est jamais entier sur le tas.
+     */
+    public interface Decoder {
+        SampleData.Source decode(int sampleRate) throws IOException;
+    }
+
+    /** Changement d'état d'un slot, appelé sur le thread éditeur. */
+    public interface Listener {
+        /** @param error cause si FAILED, sinon null */
+        void onSampleState(int slot, int state, Throwable error);
+    }
+
+    private final AudioGraph graph;
+    private final Executor publisher;
+    private final ExecutorService loader;
+    private final long budgetBytes;
+    private final boolean compact;
+
+    private final AtomicIntegerArray states = new AtomicIntegerArray(AudioGraph.SLOT_COUNT);
+    private volatile Listener listener;
+    private volatile long residentBytes = 0;
+    private volatile int evictions = 0;
+    private volatile File streamDir;
+    private volatile int streamThreshold = Integer.MAX_VALUE;
+    private volatile int streamHead = 0;
+
+    // thread éditeur
+    private final int[] generations = new int[AudioGraph.SLOT_COUNT];
+    private final AtomicReferenceArray<CompletableFuture<SampleData>> futures =
+            new AtomicReferenceArray<>(AudioGraph.SLOT_COUNT);
+    private final Decoder[] decoders = new Decoder[AudioGraph.SLOT_COUNT];
+    private final SampleData[] resident = new SampleData[AudioGraph.SLOT_COUNT];
+    private final boolean[] pinned = new boolean[AudioGraph.SLOT_COUNT];
+
+    /** Sans budget, en float 32 bits. */
+    public SampleStore(AudioGraph graph, Executor publisher) {
+        this(graph, publisher, Long.MAX_VALUE, false);
+    }
+
+    /**
+     * @param publisher   exécute sur le thread éditeur (UI : runOnUiThread ;
+     *                    hors ligne : Runnable::run)
+     * @param budgetBytes mémoire hors tas visée pour l'ensemble des slots
+     * @param compact     samples stockés en 16 bits
+     */
+    public SampleStore(AudioGraph graph, Executor publisher, long budgetBytes, boolean compact) {
+        this.graph = graph;
+        this.publisher = publisher;
+        this.budgetBytes = budgetBytes;
+        this.compact = compact;
+        // au moins deux : la lecture (disque, fournisseur de contenu) d'un slot
+        // recouvre le décodage d'un autre, même sur un seul cœur
+        int threads = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), MAX_LOADERS));
+        this.loader = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "SampleStore-loader-" + count.incrementAndGet());
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            }
+        });
+    }
+
+    public void setListener(Listener l) {
+        listener = l;
+    }
+
+    /**
+     * Samples de plus de {@code thresholdFrames} frames lus en flux, avec
+     * {@code headFrames} frames gardées en mémoire pour un départ immédiat.
+     * Vaut pour les chargements lancés ensuite ; les fichiers laissés dans
+     * {@code dir} par un arrêt en pleine écriture sont supprimés.
+     */
+    public void setStreaming(File dir, int thresholdFrames, int headFrames) {
+        File[] stale = dir.listFiles();
+        if (stale != null) for (File f : stale) f.delete();
+        streamDir = dir;
+        streamHead = Math.max(0, headFrames);
+        streamThreshold = Math.max(streamHead, thresholdFrames);
+    }
+
+    /**
+     * Lance le chargement d'un slot ; le sample en place (ou la synthèse) reste
+     * joué jusqu'au début de mesure qui suit la fin du chargement.
+     * @return terminé avec le sample une fois confié au graphe
+     */
+    public CompletableFuture<SampleData> load(final int slot, final Decoder decoder) {
+        final int gen = ++generations[slot];
+        final CompletableFuture<SampleData> result = new CompletableFuture<>();
+        CompletableFuture<SampleData> previous = futures.get(slot);
+        if (previous != null) previous.cancel(false);
+        futures.set(slot, result);
+        decoders[slot] = decoder;
+        setState(slot, LOADING, null);
+
+        final int rate = graph.getSampleRate();
+        final boolean compact16 = compact;
+        final File dir = streamDir;
+        final int threshold = streamThreshold;
+        final int head = streamHead;
+        loader.execute(new Runnable() {
+            @Override public void run() {
+                if (result.isCancelled()) return; // remplacé avant d'avoir commencé
+                SampleData data = null;
+                Throwable error = null;
+                try {
+                    SampleData.Source src = decoder.decode(rate);
+                    if (src != null && dir != null && src.getFrames() > threshold) {
+                        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("dossier " + dir);
+                        data = SampleData.streamed(src, head, new File(dir, "slot" + slot + "_" + gen + ".raw"), compact16);
+                    } else if (src != null) {
+                        data = SampleData.of(src, compact16);
+                    }
+                } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                    error = e; // sample trop gros compris : seul ce slot échoue
+                }
+                final SampleData ready = data;
+                final Throwable failure = error;
+                publisher.execute(new Runnable() {
+                    @Override public void run() { finish(slot, gen, ready, failure, result); }
+                });
+            }
+        });
+        return result;
+    }
+
+    /** Retire le sample du slot et abandonne un chargement en cours. */
+    public void clear(int slot) {
+        generations[slot]++;
+        CompletableFuture<SampleData> previous = futures.get(slot);
+        if (previous != null) previous.cancel(false);
+        futures.set(slot, null);
+        decoders[slot] = null;
+        pinned[slot] = false;
+        evict(slot);
+        setState(slot, EMPTY, null);
+    }
+
+    /** Un slot épinglé (ex. piste en mode sample) n'est jamais évincé. */
+    public void setPinned(int slot, boolean pin) {
+        if (pinned[slot] == pin) return;
+        pinned[slot] = pin;
+        if (!pin) enforceBudget(-1);
+    }
+
+    public boolean isPinned(int slot) {
+        return pinned[slot];
+    }
+
+    /**
+     * À appeler régulièrement depuis le thread éditeur (ex. à chaque step entendu) :
+     * recharge les slots évincés que le séquenceur a réclamés.
+     */
+    public void maintain() {
+        for (int m = graph.takeRequestedSamples(); m != 0; m &= m - 1) {
+            int slot = Integer.numberOfTrailingZeros(m);
+            if (states.get(slot) == EVICTED && decoders[slot] != null) load(slot, decoders[slot]);
+        }
+    }
+
+    public int getState(int slot) {
+        return states.get(slot);
+    }
+
+    public boolean isReady(int slot) {
+        return states.get(slot) == READY;
+    }
+
+    /** Futur du dernier chargement lancé pour le slot (null si aucun). */
+    public CompletableFuture<SampleData> getFuture(int slot) {
+        return futures.get(slot);
+    }
+
+    /** Mémoire hors tas des samples installés, en octets. */
+    public long getResidentBytes() { return residentBytes; }
+
+    public long getBudgetBytes() { return budgetBytes; }
+
+    public int getEvictionCount() { return evictions; }
+
+    /** Arrête le thread de chargement ; les chargements en cours sont abandonnés. */
+    public void release() {
+        loader.shutdownNow();
+    }
+
+    // --- thread éditeur ---
+
+    private void finish(int slot, int gen, SampleData data, Throwable error,
+                        CompletableFuture<SampleData> result) {
+        if (gen != generations[slot]) return; // remplacé entre-temps
+        if (error != null || data == null) {
+            Throwable cause = error != null ? error : new IOException("sample vide");
+            setState(slot, FAILED, cause);
+            result.completeExceptionally(cause);
+            return;
+        }
+        SampleData old = resident[slot];
+        if (old != null) residentBytes -= old.getSizeBytes();
+        resident[slot] = data;
+        residentBytes += data.getSizeBytes();
+        graph.stageSample(slot, data); // joué à partir de la prochaine mesure
+        setState(slot, READY, null);
+        enforceBudget(slot);
+        result.complete(data);
+    }
+
+    /** Évince les slots non épinglés les moins récemment joués (sauf {@code keep}). */
+    private void enforceBudget(int keep) {
+        while (residentBytes > budgetBytes) {
+            int victim = -1;
+            long oldest = Long.MAX_VALUE;
+            for (int s = 0; s < AudioGraph.SLOT_COUNT; s++) {
+                if (s == keep || pinned[s] || resident[s] == null) continue;
+                long t = graph.getLastTriggerFrame(s);
+                if (t < oldest) {
+                    oldest = t;
+                    victim = s;
+                }
+            }
+            if (victim < 0) return; // tout est épinglé : on dépasse plutôt que de couper un son voulu
+            evict(victim);
+            evictions++;
+            setState(victim, EVICTED, null);
+        }
+    }
+
+    /** Retire le sample du graphe ; les voix qui le jouent encore vont jusqu'au bout. */
+    private void evict(int slot) {
+        SampleData old = resident[slot];
+        if (old != null) {
+            residentBytes -= old.getSizeBytes();
+            resident[slot] = null;
+        }
+        graph.setSample(slot, (SampleData) null);
+    }
+
+    private void setState(int slot, int state, Throwable error) {
+        states.set(slot, state);
+        Listener l = listener;
+        if (l != null) l.onSampleState(slot, state, error);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.appdummy;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lecture en flux de la suite des samples longs (SampleData.isStreamed) :
+ * le thread de rendu joue la tête en mémoire pendant qu'un thread d'E/S
+ * précharge la suite, depuis le fichier projeté, dans un anneau par voix.
+ *
+ * - STREAM_VOICES anneaux de RING_FRAMES floats, préalloués
+ * - état d'un anneau : FREE -> OPEN (rendu, open) -> CLOSING (rendu, close)
+ *   -> FREE (thread d'E/S, qui seul touche au fichier)
+ * - le rendu ne bloque jamais : open rend -1 si tout est pris, read rend 0 (et
+ *   compte un underrun) si la frame n'est pas encore chargée ; le défaut de page
+ *   éventuel sur le fichier projeté se produit sur le thread d'E/S
+ * - le thread d'E/S écrit jusqu'à RING_FRAMES frames devant la position lue
+ *   (consumed), publiée par le rendu une fois par bloc
+ *
+ * open / read / consumed / close : thread de rendu uniquement.
+ */
+public final class SampleStreamer {
+
+    public static final int STREAM_VOICES = 4;
+    /** ~0,74 s à 44,1 kHz d'avance par voix. */
+    public static final int RING_FRAMES = 32768;
+    private static final int RING_MASK = RING_FRAMES - 1;
+    /** Fragment copié d'un coup, pour servir les voix à tour de rôle. */
+    private static final int CHUNK_FRAMES = 4096;
+    private static final long POLL_NANOS = 2_000_000L;
+
+    private static final int FREE = 0;
+    private static final int OPEN = 1;
+    private static final int CLOSING = 2;
+
+    private final float[][] rings = new float[STREAM_VOICES][RING_FRAMES];
+    private final AtomicIntegerArray states = new AtomicIntegerArray(STREAM_VOICES);
+    private final AtomicReferenceArray<SampleData> sources = new AtomicReferenceArray<>(STREAM_VOICES);
+    private final AtomicLongArray writePos = new AtomicLongArray(STREAM_VOICES); // fin chargée (E/S)
+    private final AtomicLongArray readPos = new AtomicLongArray(STREAM_VOICES);  // début encore lu (rendu)
+
+    private volatile boolean running = false;
+    private volatile long underruns = 0;
+    private Thread thread;
+
+    public synchronized void start() {
+        if (thread != null) return;
+        running = true;
+        thread = new Thread(new Runnable() {
+            @Override public void run() { ioLoop(); }
+        }, "SampleStreamer-io");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void release() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try { thread.join(500); } catch (InterruptedException ignored) {}
+            thread = null;
+        }
+    }
+
+    /** Frames lues avant d'être chargées (jouées en silence) depuis le début. */
+    public long getUnderruns() { return underruns; }
+
+    // --- thread de rendu ---
+
+    /** @return l'anneau attribué à ce sample, -1 si aucun n'est libre */
+    public int open(SampleData sample) {
+        for (int s = 0; s < STREAM_VOICES; s++) {
+            if (states.get(s) != FREE) continue;
+            long from = sample.getResidentFrames();
+            sources.set(s, sample);
+            readPos.set(s, from);
+            writePos.set(s, from);
+            states.set(s, OPEN); // publie ce qui précède au thread d'E/S
+            return s;
+        }
+        return -1;
+    }
+
+    /** Frame {@code idx} (>= tête) du sample ouvert sur l'anneau, 0 si pas encore chargée. */
+    public float read(int slot, int idx) {
+        if (idx >= writePos.get(slot)) {
+            underruns++;
+            return 0f;
+        }
+        return rings[slot][idx & RING_MASK];
+    }
+
+    /** Les frames avant {@code idx} ne seront plus lues : le thread d'E/S peut les remplacer. */
+    public void consumed(int slot, int idx) {
+        if (idx > readPos.get(slot)) readPos.set(slot, idx);
+    }
+
+    public void close(int slot) {
+        states.set(slot, CLOSING);
+    }
+
+    // --- thread d'E/S ---
+
+    private void ioLoop() {
+        while (running) {
+            boolean busy = false;
+            for (int s = 0; s < STREAM_VOICES; s++) {
+                int state = states.get(s);
+                if (state == CLOSING) {
+                    sources.set(s, null);
+                    states.set(s, FREE);
+                } else if (state == OPEN) {
+                    busy |= fill(s);
+                }
+            }
+            if (!busy) LockSupport.parkNanos(POLL_NANOS);
+        }
+    }
+
+    /** Charge un fragment devant la lecture ; @return vrai s'il reste à charger tout de suite. */
+    private boolean fill(int s) {
+        SampleData src = sources.get(s);
+        long w = writePos.get(s);
+        long end = Math.min(readPos.get(s) + RING_FRAMES, src.getFrames());
+        if (w >= end) return false;
+        int at = (int) (w & RING_MASK);
+        int n = (int) Math.min(Math.min(end - w, CHUNK_FRAMES), RING_FRAMES - at);
+        src.readTail((int) w, rings[s], at, n);
+        writePos.set(s, w + n); // publie les frames copiées
+        return w + n < end;
+    }
+}
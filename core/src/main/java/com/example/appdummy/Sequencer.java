@@ -0,0 +1,111 @@
+package com.example.appdummy;
+
+import java.util.Random;
+
+/**
+ * Logique de step du séquenceur, commune au jeu en direct et au rendu hors ligne :
+ * à chaque step de l'horloge, les pistes qui jouent (TrackScheduler) déclenchent
+ * leur voix de synthèse ou leur sample (avec glitch) dans l'AudioGraph, puis un
+ * repère de step est posé pour l'UI. Le step 0 de la piste 0 marque le début de
+ * mesure, où les samples fraîchement chargés prennent le relais (stageSample).
+ *
+ * onStep est appelé par le thread qui avance l'horloge ; réglages (mode sample,
+ * glitch) modifiables depuis le thread UI.
+ */
+public class Sequencer implements StepClock.Listener {
+
+    /** Fournit l'état courant des pistes (ex. RhythmCircleView). */
+    public interface SnapshotSource {
+        PatternSnapshot getSnapshot();
+    }
+
+    private final AudioGraph graph;
+    private final SnapshotSource source;
+    private final TrackScheduler scheduler = new TrackScheduler();
+    private final Random random;
+
+    // source sonore par piste : sample (si chargé) ou synthèse ; bit t = piste t,
+    // écrit par l'UI seule, lu sans verrou par le thread de planification
+    private volatile int sampleModeMask = 0;
+
+    // glitch : niveau 0..1
+    private volatile double glitchLevel = 0.0;
+
+    // résultat de makeGlitchedVolumeAndPitch (pas d'allocation par coup)
+    private float glitchVolume = 1f;
+    private float glitchPitch = 1f;
+
+    public Sequencer(AudioGraph graph, SnapshotSource source, Random random) {
+        this.graph = graph;
+        this.source = source;
+        this.random = random;
+    }
+
+    public AudioGraph getGraph() { return graph; }
+
+    public void setSampleMode(int track, boolean on) {
+        int bit = 1 << track;
+        sampleModeMask = on ? (sampleModeMask | bit) : (sampleModeMask & ~bit);
+    }
+
+    public boolean isSampleMode(int track) {
+        return (sampleModeMask & (1 << track)) != 0;
+    }
+
+    public void setGlitchLevel(double level) {
+        glitchLevel = level;
+    }
+
+    public double getGlitchLevel() {
+        return glitchLevel;
+    }
+
+    @Override public void onStep(long stepIndex, int frameOffset) {
+        PatternSnapshot snap = source.getSnapshot();
+        if (stepIndex % snap.steps == 0) graph.markBar(frameOffset); // avant les coups de ce step
+        int fired = scheduler.fire(snap, stepIndex);
+        for (int m = fired; m != 0; m &= m - 1) {
+            playTrackVoice(snap, Integer.numberOfTrailingZeros(m), frameOffset);
+        }
+        graph.markStep(stepIndex, fired, frameOffset);
+    }
+
+    private void playTrackVoice(PatternSnapshot snap, int t, int frameOffset) {
+        boolean sampleMode = (sampleModeMask & (1 << t)) != 0;
+        if (sampleMode && graph.hasSample(t)) {
+            makeGlitchedVolumeAndPitch();
+            // SoundPool plafonnait le volume à 1 : on garde le même rendu
+            float vol = Math.min(1f, glitchVolume) * snap.gain(t);
+            graph.playSample(t, snap.voice(t), vol, glitchPitch, frameOffset);
+        } else {
+            if (sampleMode) graph.requestSample(t); // pas (encore) en mémoire : synthèse en attendant
+            graph.playVoice(snap.voice(t), snap.gain(t), frameOffset);
+        }
+    }
+
+    /**
+     * Calcule un (volume, pitch) légèrement aléatoire en fonction de glitchLevel,
+     * rangé dans glitchVolume / glitchPitch.
+     * glitchLevel=0  => (1.0, 1.0)
+     * glitchLevel=1  => volume ~ [0.6, 1.4], pitch ~ [0.9, 1.1]
+     */
+    void makeGlitchedVolumeAndPitch() {
+        double g = glitchLevel;
+        if (g < 0.0) g = 0.0;
+        if (g > 1.0) g = 1.0;
+
+        double volJitter   = 4.0 * g;  // ±40% max
+        double pitchJitter = 1.5 * g / 4;  // ±10% max
+
+        double volFactor = 1.0 + (random.nextDouble() * 2.0 - 1.0) * volJitter;
+        double pitch     = 1.0 + (random.nextDouble() * 2.0 - 1.0) * pitchJitter;
+
+        if (volFactor < 0.0) volFactor = 0.0;
+        if (volFactor > 2.0) volFactor = 2.0;
+        if (pitch < 0.5) pitch = 0.5;
+        if (pitch > 2.0) pitch = 2.0;
+
+        glitchVolume = (float) volFactor;
+        glitchPitch  = (float) pitch;
+    }
+}
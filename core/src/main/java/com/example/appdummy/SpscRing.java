@@ -0,0 +1,66 @@
+package com.example.appdummy;
+
+/**
+ * Anneau préalloué à un producteur / un consommateur, sans verrou ni allocation :
+ * base commune des files entre threads (EventRing, CommandRing).
+ *
+ * Ne gère que les positions ; la sous-classe range sa charge dans ses propres
+ * tableaux parallèles de capacity() cases :
+ * - producteur : i = claim(), remplit la case i, puis publish()
+ * - consommateur : isEmpty(), lit la case headIndex(), puis pop()
+ * - file pleine : claim() rend -1 et l'élément est compté perdu (getDropped) ;
+ *   le producteur n'attend jamais
+ */
+public abstract class SpscRing {
+
+    private final int capacity;
+    private final int mask;
+
+    private volatile long head = 0; // prochain à lire (consommateur)
+    private volatile long tail = 0; // prochain à écrire (producteur)
+    private volatile long dropped = 0;
+
+    /** @param capacity arrondie à la puissance de deux supérieure */
+    protected SpscRing(int capacity) {
+        int c = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.capacity = c;
+        this.mask = c - 1;
+    }
+
+    /** Taille des tableaux de charge de la sous-classe. */
+    protected final int capacity() { return capacity; }
+
+    // --- producteur ---
+
+    /** @return la case à remplir avant publish(), -1 si la file est pleine */
+    protected final int claim() {
+        long t = tail;
+        if (t - head >= capacity) {
+            dropped++;
+            return -1;
+        }
+        return (int) (t & mask);
+    }
+
+    /** Publie la case rendue par claim() au consommateur. */
+    protected final void publish() {
+        tail = tail + 1;
+    }
+
+    // --- consommateur ---
+
+    /** Case de l'élément en tête (valide si !isEmpty()). */
+    protected final int headIndex() { return (int) (head & mask); }
+
+    public final boolean isEmpty() { return head == tail; }
+
+    /** Retire l'élément en tête. */
+    public void pop() { head = head + 1; }
+
+    /** Vide la file (côté consommateur). */
+    public void clear() { head = tail; }
+
+    public final int size() { return (int) (tail - head); }
+
+    public final long getDropped() { return dropped; }
+}
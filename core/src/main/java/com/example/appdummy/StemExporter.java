@@ -0,0 +1,168 @@
+package com.example.appdummy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Export en stems : une piste = un fichier WAV, plus le master.
+ *
+ * - le master passe par le graphe complet, toutes pistes ensemble, comme le
+ *   bounce d'OfflineRenderer : chokes entre pistes (HAT_CLOSED qui coupe
+ *   HAT_OPEN) et glitch (graine = seed) identiques au jeu en direct
+ * - chaque piste est rendue seule (PatternSnapshot.withSolo) par son propre
+ *   OfflineRenderer ; master et stems sont des tâches indépendantes, réparties
+ *   sur les cœurs du pool
+ * - pistes muettes : pas de stem
+ * - chaque rendu s'écrit bloc par bloc dans son WAV : la mémoire ne croît ni
+ *   avec le nombre de mesures ni avec celui des pistes
+ *
+ * Le master, rendu sur un seul thread, coûte à peu près la somme des stems :
+ * la durée de l'export est celle d'un bounce du graphe complet, les stems se
+ * rendant en parallèle pendant ce temps.
+ *
+ * Un stem ne reproduit que les chokes internes à sa piste, et son glitch a pour
+ * graine seed + piste : la somme des stems approche le master sans l'égaler. Le
+ * résultat ne dépend pas du nombre de threads.
+ */
+public class StemExporter {
+
+    /** Sink sans sortie : export mesuré sans disque. */
+    private static final AudioSink DISCARD = new AudioSink() {
+        @Override public void write(float[] buf, int offset, int frames) {}
+    };
+
+    private final int sampleRate;
+    private final ForkJoinPool pool;
+
+    // réglages recopiés dans le renderer de chaque piste
+    private final SampleData[] samples = new SampleData[AudioGraph.SLOT_COUNT];
+    private final boolean[] sampleMode = new boolean[AudioGraph.SLOT_COUNT];
+    private double drumGain = 1.0;
+    private double noteGain = 0.5;
+    private double glitchLevel = 0.0;
+    private long glitchSeed = 0;
+
+    /** @param parallelism nombre de threads du pool (pistes rendues en même temps) */
+    public StemExporter(int sampleRateHz, int parallelism) {
+        this.sampleRate = sampleRateHz;
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    public int getSampleRate() { return sampleRate; }
+
+    public int getParallelism() { return pool.getParallelism(); }
+
+    /** Sample d'un slot, partagé tel quel (immuable) avec les renderers des pistes. */
+    public void setSample(int slot, SampleData sample) {
+        samples[slot] = sample;
+    }
+
+    public void setSample(int slot, float[] pcm) {
+        setSample(slot, pcm != null ? SampleData.of(pcm, false) : null);
+    }
+
+    public void setSampleMode(int track, boolean on) {
+        sampleMode[track] = on;
+    }
+
+    public void setGains(double drum, double note) {
+        drumGain = drum;
+        noteGain = note;
+    }
+
+    public void setGlitch(double level, long seed) {
+        glitchLevel = level;
+        glitchSeed = seed;
+    }
+
+    /**
+     * Rend les stems et le master de {@code bars} tours de la piste 0.
+     * @param dir    dossier des fichiers (null : rien n'est écrit, rendu seul)
+     * @param prefix préfixe des noms : prefix_00_kick.wav…, prefix_master.wav
+     * @return nombre de frames du master (queue comprise)
+     */
+    public long export(final PatternSnapshot snap, final double secondsPerStep, final int bars,
+                       final File dir, final String prefix) throws IOException {
+        List<Callable<Long>> tasks = new ArrayList<>();
+        tasks.add(new Callable<Long>() { // le plus long : lancé en premier
+            @Override public Long call() throws IOException {
+                return renderMaster(snap, secondsPerStep, bars, dir, prefix);
+            }
+        });
+        for (int t = 0; t < snap.trackCount; t++) {
+            final int track = t;
+            tasks.add(new Callable<Long>() {
+                @Override public Long call() throws IOException {
+                    return renderTrack(snap, secondsPerStep, bars, dir, prefix, track);
+                }
+            });
+        }
+        List<Future<Long>> done = pool.invokeAll(tasks);
+        try {
+            for (int k = 1; k < done.size(); k++) done.get(k).get(); // remonte l'erreur d'un stem
+            return done.get(0).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("export interrompu", e);
+        } catch (ExecutionException e) {
+            Throwable c = e.getCause();
+            if (c instanceof IOException) throw (IOException) c;
+            if (c instanceof RuntimeException) throw (RuntimeException) c;
+            if (c instanceof Error) throw (Error) c;
+            throw new IOException(c);
+        }
+    }
+
+    public void release() {
+        pool.shutdown();
+    }
+
+    /** Nom du stem d'une piste : prefix_NN_voix.wav */
+    public static String stemName(String prefix, PatternSnapshot snap, int track) {
+        return String.format("%s_%02d_%s.wav", prefix, track, AudioGraph.voiceName(snap.voice(track)));
+    }
+
+    /** Rend toutes les pistes dans le même graphe (écrêté à [-1, 1] par le rendu). */
+    long renderMaster(PatternSnapshot snap, double secondsPerStep, int bars,
+                         File dir, String prefix) throws IOException {
+        OfflineRenderer r = new OfflineRenderer(sampleRate);
+        for (int t = 0; t < snap.trackCount; t++) {
+            r.getGraph().setSample(t, samples[t]);
+            r.getSequencer().setSampleMode(t, sampleMode[t]);
+        }
+        r.setGlitch(glitchLevel, glitchSeed);
+        return renderTo(r, snap, secondsPerStep, bars, dir, prefix + "_master.wav");
+    }
+
+    /** Rend une piste seule ; 0 frame si elle est muette. */
+    long renderTrack(PatternSnapshot snap, double secondsPerStep, int bars,
+                        File dir, String prefix, int track) throws IOException {
+        if (snap.isMuted(track)) return 0;
+
+        OfflineRenderer r = new OfflineRenderer(sampleRate);
+        r.getGraph().setSample(track, samples[track]);
+        r.getSequencer().setSampleMode(track, sampleMode[track]);
+        r.setGlitch(glitchLevel, glitchSeed + track);
+        return renderTo(r, snap.withSolo(track), secondsPerStep, bars, dir, stemName(prefix, snap, track));
+    }
+
+    private long renderTo(OfflineRenderer r, PatternSnapshot snap, double secondsPerStep, int bars,
+                          File dir, String name) throws IOException {
+        r.getGraph().setDrumGain(drumGain);
+        r.getGraph().setNoteGain(noteGain);
+        if (dir == null) return r.render(snap, secondsPerStep, bars, DISCARD);
+
+        WavWriter out = new WavWriter(new File(dir, name), sampleRate, 1, false);
+        try {
+            return r.render(snap, secondsPerStep, bars, out);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.appdummy;
+
+/**
+ * Horloge de séquenceur comptée en frames audio.
+ *
+ * - avancée par un seul thread audio, fenêtre par fenêtre (advance) : celui de
+ *   planification de SoundEngine, en avance sur le rendu
+ * - chaque step tombe à une frame exacte : anchorFrame + k * framesPerStep,
+ *   calculée depuis une ancre fixe => aucune dérive cumulée, même après des heures
+ * - start / stop / setSecondsPerStep peuvent être appelés depuis le thread UI :
+ *   ils ne font que poser une demande, appliquée par le thread audio
+ *
+ * Tempo : un changement ne redémarre pas la boucle. Le step en cours garde sa
+ * durée, le nouveau tempo s'applique à partir du step suivant (ou progressivement
+ * sur N steps, voir rampSecondsPerStep) ; la numérotation des steps continue.
+ */
+public class StepClock {
+
+    public interface Listener {
+        /**
+         * Appelé sur le thread qui fait avancer l'horloge.
+         * @param stepIndex   numéro absolu du step depuis le dernier start (0, 1, 2…)
+         * @param frameOffset position du step dans la fenêtre passée à advance
+         */
+        void onStep(long stepIndex, int frameOffset);
+    }
+
+    private final int sampleRate;
+
+    // demandes venant du thread UI
+    private volatile double requestedFramesPerStep;
+    private volatile int requestedRampSteps = 0;
+    private volatile int tempoRequests = 0;
+    private volatile long alignNanos;
+    private volatile double alignFramesPerStep;
+    private volatile int alignRequests = 0;
+    private volatile int startRequests = 0;
+    private volatile boolean startOnFrame = false;
+    private volatile boolean running = false;
+
+    // latence de sortie estimée (frames écrites mais pas encore jouées)
+    private volatile int outputLatencyFrames = 0;
+
+    // état propre au thread audio
+    private int appliedStarts = 0;
+    private int appliedTempo = 0;
+    private int appliedAligns = 0;
+    private double framesPerStep;
+    private long frame = 0;          // frames rendues depuis la création
+    private double anchorFrame = 0;  // frame (exacte) du step anchorStep
+    private long anchorStep = -1;
+    private long lastStep = -1;
+
+    // rampe de tempo en cours (pas de rampe : rampLength == 0)
+    private boolean tempoPending = false;
+    private double rampFrom;
+    private double rampTo;
+    private int rampLength = 0;
+    private int rampPos = 0;
+
+    public StepClock(int sampleRateHz, double secondsPerStep) {
+        this.sampleRate = sampleRateHz;
+        this.requestedFramesPerStep = toFrames(secondsPerStep);
+        this.framesPerStep = requestedFramesPerStep;
+    }
+
+    public int getSampleRate() { return sampleRate; }
+
+    /** Nouveau tempo, appliqué au prochain step sans interrompre la boucle. */
+    public void setSecondsPerStep(double secondsPerStep) {
+        rampSecondsPerStep(secondsPerStep, 0);
+    }
+
+    /**
+     * Nouveau tempo atteint progressivement sur {@code steps} steps (linéaire en BPM),
+     * à partir du prochain step. steps <= 0 : changement direct au prochain step.
+     */
+    public void rampSecondsPerStep(double secondsPerStep, int steps) {
+        requestedFramesPerStep = toFrames(secondsPerStep);
+        requestedRampSteps = Math.max(0, steps);
+        tempoRequests++;
+    }
+
+    /**
+     * Recale la grille des steps sur un instant (System.nanoTime, ex. le dernier tap)
+     * avec un nouveau tempo, appliqué d'un coup et sans rampe : les steps suivants
+     * tombent à cet instant + k * secondsPerStep. La numérotation continue, aucun
+     * step n'est rejoué ni sauté brutalement.
+     */
+    public void alignTo(long nanoTime, double secondsPerStep) {
+        double f = toFrames(secondsPerStep);
+        requestedFramesPerStep = f; // repris par start() si l'horloge est arrêtée
+        alignFramesPerStep = f;
+        alignNanos = nanoTime;
+        alignRequests++;
+    }
+
+    /** Frames déjà écrites mais pas encore entendues (pour caler les taps sur le son). */
+    public void setOutputLatencyFrames(int frames) {
+        outputLatencyFrames = Math.max(0, frames);
+    }
+
+    /** (Re)démarre : le step 0 tombe un step après la position courante. */
+    public void start() {
+        startOnFrame = false;
+        startRequests++;
+        running = true;
+    }
+
+    /** (Re)démarre avec le step 0 sur la position courante (rendu hors ligne). */
+    public void startNow() {
+        startOnFrame = true;
+        startRequests++;
+        running = true;
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public boolean isRunning() { return running; }
+
+    /** Position de l'horloge en frames (thread qui l'avance). */
+    public long getFramePosition() { return frame; }
+
+    /**
+     * Avance de {@code frames} frames et émet tous les steps qui tombent dans la fenêtre.
+     * Toujours appelé par le même thread.
+     */
+    public void advance(int frames, Listener listener) {
+        if (appliedTempo != tempoRequests) {
+            appliedTempo = tempoRequests;
+            tempoPending = true;
+        }
+        if (appliedStarts != startRequests) {
+            appliedStarts = startRequests;
+            tempoPending = false;
+            rampLength = 0;
+            framesPerStep = requestedFramesPerStep;
+            anchorFrame = frame;
+            anchorStep = startOnFrame ? 0 : -1;
+            lastStep = -1;
+        } else if (tempoPending && (!running || lastStep < 0)) {
+            // rien en cours : pas de step à terminer, on applique tout de suite
+            rebase();
+            applyTempo();
+        }
+        if (appliedAligns != alignRequests) {
+            appliedAligns = alignRequests;
+            align(alignNanos, alignFramesPerStep);
+        }
+
+        long blockEnd = frame + frames;
+        if (running && listener != null) {
+            while (true) {
+                long next = nextStepFrame();
+                if (next >= blockEnd) break;
+                lastStep++;
+                if (tempoPending || rampLength > 0) {
+                    // frontière de step : le step qui commence prend le nouveau tempo
+                    rebase();
+                    if (tempoPending) applyTempo();
+                    else stepRamp();
+                }
+                listener.onStep(lastStep, (int) Math.max(0, next - frame));
+            }
+        }
+        frame = blockEnd;
+    }
+
+    private long nextStepFrame() {
+        long k = lastStep + 1 - anchorStep;
+        return (long) Math.ceil(anchorFrame + k * framesPerStep);
+    }
+
+    /** Ré-ancre sur le dernier step émis, à sa position exacte. */
+    private void rebase() {
+        if (lastStep > anchorStep) {
+            anchorFrame = anchorFrame + (lastStep - anchorStep) * framesPerStep;
+            anchorStep = lastStep;
+        }
+    }
+
+    private void applyTempo() {
+        tempoPending = false;
+        double target = requestedFramesPerStep;
+        int steps = requestedRampSteps;
+        if (steps <= 0 || target == framesPerStep) {
+            framesPerStep = target;
+            rampLength = 0;
+            return;
+        }
+        rampFrom = framesPerStep;
+        rampTo = target;
+        rampLength = steps;
+        rampPos = 0;
+        stepRamp();
+    }
+
+    // tempo (1 / framesPerStep) interpolé linéairement, un palier par step
+    private void stepRamp() {
+        rampPos++;
+        if (rampPos >= rampLength) {
+            framesPerStep = rampTo;
+            rampLength = 0;
+            return;
+        }
+        double a = (double) rampPos / rampLength;
+        framesPerStep = 1.0 / ((1.0 - a) / rampFrom + a / rampTo);
+    }
+
+    private void align(long nanoTime, double period) {
+        // le tempo aligné remplace toute demande ou rampe en attente
+        tempoPending = false;
+        rampLength = 0;
+        if (!running) {
+            framesPerStep = period;
+            return;
+        }
+        // frame rendue qui était entendue à cet instant
+        double target = frame - outputLatencyFrames
+                + (nanoTime - System.nanoTime()) * 1e-9 * sampleRate;
+        // dernier step émis, à l'ancien tempo
+        double lastFrame = anchorFrame + (lastStep - anchorStep) * framesPerStep;
+        framesPerStep = period;
+        // premier point de la grille recalée à au moins un demi-step du dernier step émis
+        double earliest = Math.max(frame, lastFrame + 0.5 * period);
+        double j = Math.ceil((earliest - target) / period);
+        anchorFrame = target + j * period;
+        anchorStep = lastStep + 1;
+    }
+
+    private double toFrames(double secondsPerStep) {
+        return Math.max(1.0, secondsPerStep * sampleRate);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.appdummy;
+
+/**
+ * Noyau de synthèse des voix internes, sans allocation :
+ * - oscillateurs à accumulateur de phase 32 bits lisant une table de sinus
+ *   (interpolation linéaire)
+ * - bruit xorshift32 propre à chaque rendu : même graine => même buffer
+ * - enveloppe attaque / plateau / release rendue segment par segment
+ *   (pas de test de segment par échantillon)
+ *
+ * Sortie : deux composantes (percussion, note) écrites dans des buffers fournis.
+ */
+public final class SynthKernel {
+
+    /** Réglages d'une voix : percussion = tone * sin(base) + noise * bruit, note = note * sin(noteFreq). */
+    public static final class Patch {
+        public final double baseFreqHz;
+        public final double toneAmp;
+        public final double noiseAmp;
+        public final double noteFreqHz;
+        public final double noteAmp;
+        public final int durMs;
+        public final int attackMs;
+        public final int decayMs;
+
+        public Patch(double baseFreqHz, double toneAmp, double noiseAmp,
+                     double noteFreqHz, double noteAmp,
+                     int durMs, int attackMs, int decayMs) {
+            this.baseFreqHz = baseFreqHz;
+            this.toneAmp = toneAmp;
+            this.noiseAmp = noiseAmp;
+            this.noteFreqHz = noteFreqHz;
+            this.noteAmp = noteAmp;
+            this.durMs = durMs;
+            this.attackMs = attackMs;
+            this.decayMs = decayMs;
+        }
+
+        public int frames(int sampleRate) {
+            return Math.max(1, (int) Math.round(durMs * sampleRate / 1000.0));
+        }
+    }
+
+    private static final int TABLE_BITS = 12;
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    private static final int FRAC_BITS  = 32 - TABLE_BITS;
+    private static final float FRAC_SCALE = 1f / (1 << FRAC_BITS);
+
+    // une case de garde pour l'interpolation
+    private static final float[] SINE = new float[TABLE_SIZE + 1];
+    static {
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            SINE[i] = (float) Math.sin(2.0 * Math.PI * i / TABLE_SIZE);
+        }
+    }
+
+    private SynthKernel() {}
+
+    /**
+     * Rend {@code patch.frames(sampleRate)} frames dans drumOut et noteOut
+     * (taille suffisante exigée), avec un gain de sortie {@code outGain}.
+     * @return nombre de frames écrites
+     */
+    public static int render(Patch patch, int sampleRate, int seed, float outGain,
+                             float[] drumOut, float[] noteOut) {
+        int n = patch.frames(sampleRate);
+
+        int a = Math.max(0, Math.min(n, (int) Math.round(patch.attackMs * sampleRate / 1000.0)));
+        int d = Math.max(0, Math.min(n - a, (int) Math.round(patch.decayMs * sampleRate / 1000.0)));
+        int releaseStart = n - d;
+
+        int baseInc = phaseIncrement(patch.baseFreqHz, sampleRate);
+        int noteInc = phaseIncrement(patch.noteFreqHz, sampleRate);
+        float tone  = (float) patch.toneAmp * outGain;
+        float noise = (float) patch.noiseAmp * outGain;
+        float note  = (float) patch.noteAmp * outGain;
+
+        int basePhase = 0;
+        int notePhase = 0;
+        int rnd = (seed != 0) ? seed : 0x2545F491;
+
+        // segments d'enveloppe : [0,a) montée, [a,releaseStart) plateau, [releaseStart,n) descente
+        float env = (a == 0) ? 1f : 0f;
+        float envInc = (a == 0) ? 0f : 1f / a;
+        int segEnd = a;
+        int i = 0;
+        for (int seg = 0; seg < 3; seg++) {
+            for (; i < segEnd; i++) {
+                rnd ^= rnd << 13;
+                rnd ^= rnd >>> 17;
+                rnd ^= rnd << 5;
+                float nz = rnd * (1f / 2147483648f);
+
+                float sb = sine(basePhase);
+                float sn = sine(notePhase);
+                basePhase += baseInc;
+                notePhase += noteInc;
+
+                drumOut[i] = env * (tone * sb + noise * nz);
+                noteOut[i] = env * (note * sn);
+                env += envInc;
+            }
+            if (seg == 0) {
+                env = 1f;
+                envInc = 0f;
+                segEnd = releaseStart;
+            } else if (seg == 1) {
+                env = (d == 0) ? 0f : 1f;
+                envInc = (d == 0) ? 0f : -1f / d;
+                segEnd = n;
+            }
+        }
+        return n;
+    }
+
+    private static int phaseIncrement(double freqHz, int sampleRate) {
+        return (int) Math.round(freqHz / sampleRate * 4294967296.0);
+    }
+
+    private static float sine(int phase) {
+        int idx = phase >>> FRAC_BITS;
+        float frac = (phase & ((1 << FRAC_BITS) - 1)) * FRAC_SCALE;
+        float s0 = SINE[idx];
+        return s0 + (SINE[idx + 1] - s0) * frac;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.appdummy;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Mesures de précision du rendu temps réel, alimentées par le thread de rendu :
+ *
+ * - gigue des ticks : chaque step est étiqueté avec sa frame prévue (planification)
+ *   et la frame où il est réellement rendu. Le temps « idéal » d'une frame vient
+ *   d'un modèle frame -> System.nanoTime recalé doucement bloc après bloc (boucle
+ *   à verrouillage de délai, comme les moteurs audio le font pour leurs callbacks).
+ *   Gigue = |temps réel du rendu - temps idéal de la frame prévue| : elle compte à
+ *   la fois un bloc réveillé en retard et un step rendu après sa frame.
+ * - ticks manqués : steps rendus après leur frame prévue (planning trop court)
+ * - CPU par bloc : durée de AudioGraph.render
+ *
+ * Histogrammes à mémoire fixe (LatencyHistogram), aucune allocation au rendu.
+ * reset() peut être appelé depuis l'UI : la remise à zéro est faite par le thread
+ * de rendu au bloc suivant.
+ */
+public final class TimingStats {
+
+    /** Poids d'un bloc dans le recalage du modèle (constante de temps ~100 blocs). */
+    private static final double DLL_GAIN = 0.01;
+
+    /** Blocs ignorés après (re)démarrage, le temps que le modèle se cale. */
+    private static final int WARMUP_BLOCKS = 200;
+
+    private final double nanosPerFrame;
+    private final long blockBudgetNanos;
+
+    private final LatencyHistogram jitter = new LatencyHistogram();
+    private final LatencyHistogram callbackCpu = new LatencyHistogram();
+    private volatile long missedTicks = 0;
+    private volatile long blocks = 0;
+
+    private volatile int resetRequests = 0;
+    private int appliedResets = 0;
+
+    // modèle frame -> temps (thread de rendu)
+    private boolean locked = false;
+    private double modelNanos;
+    private long modelFrame;
+    private int warmup = WARMUP_BLOCKS;
+    private double blockError; // temps réel - temps idéal du début du bloc courant
+    private long blockStart;
+
+    public TimingStats(int sampleRate, int blockFrames) {
+        this.nanosPerFrame = 1e9 / sampleRate;
+        this.blockBudgetNanos = (long) (blockFrames * nanosPerFrame);
+    }
+
+    // --- thread de rendu ---
+
+    /** Début d'un bloc : {@code nowNanos} = System.nanoTime() avant le rendu. */
+    public void beginBlock(long blockStartFrame, long nowNanos) {
+        if (appliedResets != resetRequests) {
+            appliedResets = resetRequests;
+            jitter.reset();
+            callbackCpu.reset();
+            missedTicks = 0;
+            blocks = 0;
+        }
+        blockStart = blockStartFrame;
+        if (!locked || blockStartFrame < modelFrame) {
+            locked = true;
+            modelNanos = nowNanos;
+            modelFrame = blockStartFrame;
+            blockError = 0;
+            warmup = WARMUP_BLOCKS;
+            return;
+        }
+        double predicted = modelNanos + (blockStartFrame - modelFrame) * nanosPerFrame;
+        blockError = nowNanos - predicted;
+        modelNanos = predicted + blockError * DLL_GAIN;
+        modelFrame = blockStartFrame;
+        if (warmup > 0) warmup--;
+    }
+
+    /** Un step prévu à intendedFrame vient d'être rendu à renderedFrame. */
+    public void stepRendered(long intendedFrame, long renderedFrame) {
+        if (renderedFrame > intendedFrame) missedTicks++;
+        if (warmup > 0) return;
+        double late = blockError + (renderedFrame - intendedFrame) * nanosPerFrame;
+        jitter.record((long) Math.abs(late));
+    }
+
+    /** Fin du rendu du bloc, {@code cpuNanos} passées dans render. */
+    public void endBlock(long cpuNanos) {
+        callbackCpu.record(cpuNanos);
+        blocks++;
+    }
+
+    // --- lecture (n'importe quel thread) ---
+
+    public void reset() {
+        resetRequests++;
+    }
+
+    public LatencyHistogram getJitter() { return jitter; }
+
+    public LatencyHistogram getCallbackCpu() { return callbackCpu; }
+
+    public long getMissedTicks() { return missedTicks; }
+
+    public long getBlocks() { return blocks; }
+
+    /** Durée audio d'un bloc : le budget CPU à ne pas dépasser. */
+    public long getBlockBudgetNanos() { return blockBudgetNanos; }
+
+    /**
+     * Export CSV pour la QA : un tableau de synthèse (metric,value), une ligne
+     * vide, puis les cases non vides des histogrammes (histogram,low_ns,high_ns,count).
+     */
+    public void writeCsv(Writer out) throws IOException {
+        out.write("metric,value\n");
+        writeRow(out, "blocks", blocks);
+        writeRow(out, "block_budget_ns", blockBudgetNanos);
+        writeRow(out, "missed_ticks", missedTicks);
+        writeSummary(out, "jitter", jitter);
+        writeSummary(out, "callback_cpu", callbackCpu);
+        out.write("\nhistogram,low_ns,high_ns,count\n");
+        writeBuckets(out, "jitter", jitter);
+        writeBuckets(out, "callback_cpu", callbackCpu);
+        out.flush();
+    }
+
+    private static void writeSummary(Writer out, String name, LatencyHistogram h) throws IOException {
+        writeRow(out, name + "_count", h.getTotalCount());
+        writeRow(out, name + "_mean_ns", Math.round(h.getMean()));
+        writeRow(out, name + "_p50_ns", h.getValueAtPercentile(50));
+        writeRow(out, name + "_p90_ns", h.getValueAtPercentile(90));
+        writeRow(out, name + "_p99_ns", h.getValueAtPercentile(99));
+        writeRow(out, name + "_p999_ns", h.getValueAtPercentile(99.9));
+        writeRow(out, name + "_max_ns", h.getMax());
+    }
+
+    private static void writeBuckets(Writer out, String name, LatencyHistogram h) throws IOException {
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            long c = h.getCount(i);
+            if (c == 0) continue;
+            out.write(name + "," + LatencyHistogram.lowerBound(i) + ","
+                    + LatencyHistogram.upperBound(i) + "," + c + "\n");
+        }
+    }
+
+    private static void writeRow(Writer out, String key, long value) throws IOException {
+        out.write(key + "," + value + "\n");
+    }
+}
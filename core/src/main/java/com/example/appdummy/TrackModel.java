@@ -0,0 +1,59 @@
+package com.example.appdummy;
+
+/**
+ * Modèle du séquenceur : N pistes, rangées en tableaux parallèles
+ * (une case par piste, capacité MAX_TRACKS).
+ *
+ * Piste 0 = piste "horloge" (l'anneau bleu) : elle joue sur tous ses steps.
+ * Les autres pistes suivent un motif euclidien (pulses, rotation).
+ *
+ * Modifié uniquement par le thread UI ; le thread audio n'en lit que des
+ * copies figées (PatternSnapshot).
+ */
+public final class TrackModel {
+
+    public static final int MAX_TRACKS = 16;
+
+    public int count = 0;
+
+    public final int[]     steps    = new int[MAX_TRACKS];
+    public final int[]     pulses   = new int[MAX_TRACKS];
+    public final int[]     rotation = new int[MAX_TRACKS];
+    public final int[]     voice    = new int[MAX_TRACKS];
+    public final float[]   gain     = new float[MAX_TRACKS];
+    public final boolean[] mute     = new boolean[MAX_TRACKS];
+
+    /** Ajoute une piste ; retourne son index, ou -1 si le modèle est plein. */
+    public int add(int trackSteps, int trackPulses, int trackVoice) {
+        if (count >= MAX_TRACKS) return -1;
+        int t = count++;
+        steps[t]    = trackSteps;
+        pulses[t]   = trackPulses;
+        rotation[t] = 0;
+        voice[t]    = trackVoice;
+        gain[t]     = 1f;
+        mute[t]     = false;
+        clamp(t);
+        return t;
+    }
+
+    public void removeLast() {
+        if (count > 1) count--;
+    }
+
+    /** Borne pulses à [0, steps] (la piste 0 joue tous ses steps). */
+    public void clamp(int t) {
+        if (t == 0) pulses[t] = steps[t];
+        if (pulses[t] > steps[t]) pulses[t] = steps[t];
+        if (pulses[t] < 0) pulses[t] = 0;
+    }
+
+    public void clampAll() {
+        for (int t = 0; t < count; t++) clamp(t);
+    }
+
+    /** Motif de la piste t (masque de bits, bit i = step i). */
+    public long pattern(int t) {
+        return EuclideanPatterns.get(steps[t], pulses[t], rotation[t]);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.appdummy;
+
+/**
+ * Ordonnanceur polymétrique : chaque piste boucle sur sa propre longueur,
+ * toutes avancent sur le même step maître (celui de StepClock).
+ *
+ * Au lieu de tester chaque piste à chaque step, on garde un tas binaire (min-heap)
+ * des pistes indexé par le step maître de leur prochaine pulsation : un step ne
+ * coûte que les pistes qui jouent réellement (O(k log n)), les pistes muettes ou
+ * vides n'y entrent pas. Le prochain step d'une piste se lit dans son masque
+ * de bits (numberOfTrailingZeros), sans boucle sur les steps.
+ *
+ * Le tas est reconstruit quand le snapshot change (édition UI) ou quand
+ * l'horloge redémarre. Utilisé uniquement par le thread audio : aucune allocation.
+ */
+public final class TrackScheduler {
+
+    private final int[] heap = new int[TrackModel.MAX_TRACKS];       // index de piste
+    private final long[] nextStep = new long[TrackModel.MAX_TRACKS]; // step maître de la prochaine pulsation
+    private int size = 0;
+
+    private PatternSnapshot snap;
+    private long lastStep = Long.MIN_VALUE;
+
+    /**
+     * Pistes qui jouent au step maître {@code masterStep} : bit t = piste t.
+     * Les appels se font normalement avec des steps consécutifs ; tout saut
+     * (redémarrage, step manqué) provoque une reconstruction.
+     */
+    public int fire(PatternSnapshot s, long masterStep) {
+        if (s != snap || masterStep != lastStep + 1) rebuild(s, masterStep);
+        lastStep = masterStep;
+
+        int mask = 0;
+        while (size > 0 && nextStep[heap[0]] <= masterStep) {
+            int t = heap[0];
+            if (nextStep[t] == masterStep) mask |= 1 << t;
+            nextStep[t] = nextFire(t, masterStep + 1);
+            siftDown(0);
+        }
+        return mask;
+    }
+
+    /** Step maître de la prochaine pulsation, toutes pistes confondues (-1 si aucune). */
+    public long peekNextStep() {
+        return (size > 0) ? nextStep[heap[0]] : -1L;
+    }
+
+    private void rebuild(PatternSnapshot s, long fromStep) {
+        snap = s;
+        size = 0;
+        for (int t = 0; t < s.trackCount; t++) {
+            if (s.fireMask(t) == 0L) continue;
+            nextStep[t] = nextFire(t, fromStep);
+            heap[size] = t;
+            siftUp(size++);
+        }
+    }
+
+    /** Premier step maître >= from où la piste t joue (son masque n'est pas vide). */
+    private long nextFire(int t, long from) {
+        int steps = snap.steps(t);
+        long f = snap.fireMask(t);
+        int local = (int) Math.floorMod(from, (long) steps);
+        long ahead = f >>> local;
+        if (ahead != 0L) return from + Long.numberOfTrailingZeros(ahead);
+        return from + (steps - local) + Long.numberOfTrailingZeros(f);
+    }
+
+    private boolean less(int a, int b) {
+        long na = nextStep[heap[a]];
+        long nb = nextStep[heap[b]];
+        return na < nb || (na == nb && heap[a] < heap[b]);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            if (!less(i, p)) break;
+            swap(i, p);
+            i = p;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int l = 2 * i + 1;
+            if (l >= size) break;
+            int m = (l + 1 < size && less(l + 1, l)) ? l + 1 : l;
+            if (!less(m, i)) break;
+            swap(i, m);
+            i = m;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.appdummy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Décodage d'un WAV vers un buffer float mono à la fréquence du moteur, converti
+ * une fois pour toutes au chargement :
+ * - PCM entier 8, 16, 24 ou 32 bits, float 32 ou 64 bits (WAVE_FORMAT_EXTENSIBLE compris)
+ * - mono, stéréo ou plus : les canaux sont moyennés
+ * - n'importe quelle fréquence : rééchantillonnage linéaire vers targetRate
+ *
+ * Les fichiers sont lus par un FileChannel projeté en mémoire (pas de copie des
+ * octets) ; un InputStream est d'abord lu en entier.
+ *
+ * open() ne décode rien d'avance : la Source rend les frames demandées, converties
+ * et rééchantillonnées à la volée depuis le buffer. Un sample long passe ainsi
+ * vers SampleData ou SampleCache par fragments, sans jamais être entier sur le tas.
+ */
+public final class WavReader {
+
+    private static final int FORMAT_PCM        = 1;
+    private static final int FORMAT_FLOAT      = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private WavReader() {}
+
+    public static float[] readMono(File file, int targetRate) throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return readMono(ch, targetRate);
+        }
+    }
+
+    /** Décode le canal depuis le début ; le canal n'est pas fermé. */
+    public static float[] readMono(FileChannel ch, int targetRate) throws IOException {
+        return decode(map(ch), targetRate);
+    }
+
+    /**
+     * Source décodée à la demande depuis le canal projeté ; reste lisible après
+     * la fermeture du canal (la projection vit jusqu'au GC de la Source).
+     */
+    public static SampleData.Source open(FileChannel ch, int targetRate) throws IOException {
+        return open(map(ch), targetRate);
+    }
+
+    private static ByteBuffer map(FileChannel ch) throws IOException {
+        long size = ch.size();
+        if (size > Integer.MAX_VALUE) throw new IOException("WAV trop gros");
+        return ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    public static float[] readMono(InputStream in, int targetRate) throws IOException {
+        ByteArrayOutputStream all = new ByteArrayOutputStream(64 * 1024);
+        byte[] chunk = new byte[16 * 1024];
+        int n;
+        while ((n = in.read(chunk)) > 0) all.write(chunk, 0, n);
+        return decode(ByteBuffer.wrap(all.toByteArray()), targetRate);
+    }
+
+    /** Décode un WAV complet présent dans {@code buf} (position/limite ignorées). */
+    public static float[] decode(ByteBuffer buf, int targetRate) throws IOException {
+        SampleData.Source src = open(buf, targetRate);
+        float[] out = new float[src.getFrames()];
+        src.read(0, out, 0, out.length);
+        return out;
+    }
+
+    /** Lit l'en-tête du WAV présent dans {@code buf} ; les frames sont décodées à la lecture. */
+    public static SampleData.Source open(ByteBuffer buf, int targetRate) throws IOException {
+        ByteBuffer b = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int end = b.capacity();
+        if (end < 12 || b.getInt(0) != tag('R', 'I', 'F', 'F') || b.getInt(8) != tag('W', 'A', 'V', 'E')) {
+            throw new IOException("pas un WAVE");
+        }
+
+        int format = 0;
+        int channels = 0;
+        int rate = 0;
+        int bits = 0;
+        int pos = 12;
+        while (pos + 8 <= end) {
+            int id = b.getInt(pos);
+            long len = b.getInt(pos + 4) & 0xFFFFFFFFL;
+            int body = pos + 8;
+            if (id == tag('f', 'm', 't', ' ')) {
+                if (len < 16 || body + 16 > end) throw new IOException("chunk fmt tronqué");
+                format   = b.getShort(body) & 0xFFFF;
+                channels = b.getShort(body + 2) & 0xFFFF;
+                rate     = b.getInt(body + 4);
+                bits     = b.getShort(body + 14) & 0xFFFF;
+                if (format == FORMAT_EXTENSIBLE && len >= 26 && body + 26 <= end) {
+                    format = b.getShort(body + 24) & 0xFFFF; // début du GUID de sous-format
+                }
+            } else if (id == tag('d', 'a', 't', 'a')) {
+                // longueur 0 ou fausse (écriture interrompue) : jusqu'à la fin du fichier
+                int bytes = (int) Math.min(len == 0 ? Long.MAX_VALUE : len, end - body);
+                return new Decoded(b, body, bytes, format, channels, bits, rate, targetRate);
+            }
+            long next = body + len + (len & 1); // padding RIFF
+            if (next > end) break;
+            pos = (int) next;
+        }
+        throw new IOException("pas de chunk data");
+    }
+
+    /**
+     * Frames mono à targetRate, calculées depuis le buffer à chaque lecture :
+     * conversion et moyenne des canaux par frame source, puis interpolation
+     * linéaire entre frames sources voisines.
+     */
+    private static final class Decoded implements SampleData.Source {
+        private final ByteBuffer b;
+        private final int start;
+        private final int bits;
+        private final boolean flt;
+        private final int channels;
+        private final int width;
+        private final int frameBytes;
+        private final int srcFrames;
+        private final double step;   // frames source par frame rendue
+        private final boolean direct; // même fréquence : pas d'interpolation
+        private final int frames;
+
+        Decoded(ByteBuffer b, int start, int bytes, int format, int channels, int bits,
+                int rate, int targetRate) throws IOException {
+            boolean pcm = format == FORMAT_PCM && (bits == 8 || bits == 16 || bits == 24 || bits == 32);
+            boolean flt = format == FORMAT_FLOAT && (bits == 32 || bits == 64);
+            if ((!pcm && !flt) || channels < 1 || rate <= 0) {
+                throw new IOException("format WAV non supporté (" + format + ", " + bits + " bits, "
+                        + channels + " canaux)");
+            }
+            this.b = b;
+            this.start = start;
+            this.bits = bits;
+            this.flt = flt;
+            this.channels = channels;
+            this.width = bits / 8;
+            this.frameBytes = width * channels;
+            this.srcFrames = bytes / frameBytes;
+            this.direct = rate == targetRate || srcFrames == 0;
+            this.step = rate / (double) targetRate;
+            this.frames = direct ? srcFrames : (int) Math.floor((srcFrames - 1) / step) + 1;
+        }
+
+        @Override public int getFrames() { return frames; }
+
+        @Override public void read(int from, float[] dst, int offset, int n) {
+            if (direct) {
+                for (int i = 0; i < n; i++) dst[offset + i] = frame(from + i);
+                return;
+            }
+            int have = -2; // frame source déjà convertie dans cur (next = have + 1), aucune au départ
+            float cur = 0f;
+            float next = 0f;
+            for (int i = 0; i < n; i++) {
+                double p = (from + i) * step;
+                int idx = (int) p;
+                float frac = (float) (p - idx);
+                if (idx != have) {
+                    cur = (idx == have + 1) ? next : frame(idx);
+                    next = (idx + 1 < srcFrames) ? frame(idx + 1) : cur;
+                    have = idx;
+                }
+                dst[offset + i] = cur + (next - cur) * frac;
+            }
+        }
+
+        private float frame(int k) {
+            int p = start + k * frameBytes;
+            float sum = 0f;
+            for (int c = 0; c < channels; c++, p += width) {
+                switch (bits) {
+                    case 8:  sum += ((b.get(p) & 0xFF) - 128) / 128f; break;
+                    case 16: sum += b.getShort(p) / 32768f; break;
+                    case 24: sum += ((b.get(p) & 0xFF) | ((b.get(p + 1) & 0xFF) << 8)
+                                     | (b.get(p + 2) << 16)) / 8388608f; break;
+                    case 32: sum += flt ? b.getFloat(p) : b.getInt(p) / 2147483648f; break;
+                    default: sum += (float) b.getDouble(p); break; // float 64
+                }
+            }
+            return sum * (1f / channels);
+        }
+    }
+
+    private static int tag(char a, char b, char c, char d) {
+        return a | (b << 8) | (c << 16) | (d << 24);
+    }
+}
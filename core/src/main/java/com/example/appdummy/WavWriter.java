@@ -0,0 +1,135 @@
+package com.example.appdummy;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * Écriture de fichiers WAV (RIFF, little-endian) :
+ * - writePcm16 : un buffer 16 bits d'un coup (enregistrement micro)
+ * - en flux (AudioSink) : blocs float écrits au fil du rendu, en PCM 16 bits
+ *   ou en float 32 bits ; les tailles de l'en-tête sont complétées à close()
+ */
+public final class WavWriter implements AudioSink, Closeable {
+
+    public static final int FORMAT_PCM   = 1;
+    public static final int FORMAT_FLOAT = 3;
+
+    private final File file;
+    private final OutputStream out;
+    private final int channels;
+    private final int format;
+    private final int bytesPerSample;
+    private byte[] scratch = new byte[0];
+    private long dataBytes = 0;
+
+    /**
+     * @param floatFormat true : float 32 bits (sans écrêtage), false : PCM 16 bits
+     */
+    public WavWriter(File file, int sampleRate, int channels, boolean floatFormat) throws IOException {
+        this.file = file;
+        this.channels = channels;
+        this.format = floatFormat ? FORMAT_FLOAT : FORMAT_PCM;
+        this.bytesPerSample = floatFormat ? 4 : 2;
+        this.out = new BufferedOutputStream(new FileOutputStream(file));
+        writeHeader(out, format, channels, sampleRate, bytesPerSample * 8, 0);
+    }
+
+    @Override public void write(float[] buf, int offset, int frames) throws IOException {
+        int n = frames * channels;
+        int len = n * bytesPerSample;
+        if (scratch.length < len) scratch = new byte[len];
+        byte[] b = scratch;
+        int j = 0;
+        if (format == FORMAT_FLOAT) {
+            for (int i = 0; i < n; i++) {
+                int v = Float.floatToRawIntBits(buf[offset + i]);
+                b[j++] = (byte) v;
+                b[j++] = (byte) (v >> 8);
+                b[j++] = (byte) (v >> 16);
+                b[j++] = (byte) (v >> 24);
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                short s = toPcm16(buf[offset + i]);
+                b[j++] = (byte) s;
+                b[j++] = (byte) (s >> 8);
+            }
+        }
+        out.write(b, 0, len);
+        dataBytes += len;
+    }
+
+    /** Termine le fichier : padding RIFF, puis tailles RIFF et data réécrites dans l'en-tête. */
+    @Override public void close() throws IOException {
+        if ((dataBytes & 1) != 0) out.write(0);
+        out.close();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(4);
+            raf.writeInt(Integer.reverseBytes((int) (36 + dataBytes + (dataBytes & 1))));
+            raf.seek(40);
+            raf.writeInt(Integer.reverseBytes((int) dataBytes));
+        } finally {
+            raf.close();
+        }
+    }
+
+    public long getDataBytes() { return dataBytes; }
+
+    /** Écrit un fichier WAV PCM 16 bits complet. */
+    public static void writePcm16(File file, short[] pcm, int sampleRate, int channels) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            writeHeader(out, FORMAT_PCM, channels, sampleRate, 16, pcm.length * 2);
+            for (short s : pcm) {
+                writeShort(out, s);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    static short toPcm16(float x) {
+        float v = x * 32767f;
+        if (v > 32767f) v = 32767f;
+        if (v < -32768f) v = -32768f;
+        return (short) Math.round(v);
+    }
+
+    private static void writeHeader(OutputStream out, int format, int channels, int sampleRate,
+                                    int bits, int dataLen) throws IOException {
+        int blockAlign = channels * bits / 8;
+        int byteRate = sampleRate * blockAlign;
+
+        // RIFF header
+        out.write(new byte[]{ 'R','I','F','F' });
+        writeInt(out, 36 + dataLen);
+        out.write(new byte[]{ 'W','A','V','E','f','m','t',' ' });
+        writeInt(out, 16); // PCM chunk
+        writeShort(out, (short) format);
+        writeShort(out, (short) channels);
+        writeInt(out, sampleRate);
+        writeInt(out, byteRate);
+        writeShort(out, (short) blockAlign);
+        writeShort(out, (short) bits);
+        out.write(new byte[]{ 'd','a','t','a' });
+        writeInt(out, dataLen);
+    }
+
+    static void writeInt(OutputStream out, int v) throws IOException {
+        out.write(v & 0xFF);
+        out.write((v >> 8) & 0xFF);
+        out.write((v >> 16) & 0xFF);
+        out.write((v >> 24) & 0xFF);
+    }
+
+    static void writeShort(OutputStream out, short v) throws IOException {
+        out.write(v & 0xFF);
+        out.write((v >> 8) & 0xFF);
+    }
+}